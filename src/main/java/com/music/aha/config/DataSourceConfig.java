@@ -0,0 +1,62 @@
+package com.music.aha.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Read/write split, enabled by setting {@code aha.datasource.replica.jdbc-url}. Without it Spring
+ * Boot configures the single {@code spring.datasource} as usual.
+ * <p>
+ * Writes and read-write transactions use the {@code spring.datasource} primary, which is also the
+ * only database Flyway migrates. Read-only transactions ({@code @Transactional(readOnly = true)},
+ * and Spring Data's own finders, which are read-only by default) use the replica pool configured
+ * under {@code aha.datasource.replica.*}.
+ */
+@Configuration
+@ConditionalOnProperty("aha.datasource.replica.jdbc-url")
+public class DataSourceConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("aha.datasource.replica")
+    public HikariDataSource replicaDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setDriverClassName(properties.determineDriverClassName());
+        dataSource.setReadOnly(true);
+        // Fall back to the primary quickly rather than waiting the default 30 s for a connection
+        dataSource.setConnectionTimeout(2000);
+        // Start even if the replica is down; reads go to the primary until it comes up
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 @Value("${aha.datasource.replica.retry-seconds:30}") long retrySeconds) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, replica, Duration.ofSeconds(retrySeconds)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.music.aha.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Sends connections for read-only transactions to the replica and everything else to the primary.
+ * The route is decided when the connection is first used, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}; otherwise the
+ * transaction's read-only flag is not known yet.
+ * <p>
+ * If the replica cannot hand out a connection, the read goes to the primary instead and the
+ * replica is skipped for {@code retryAfter} before it is tried again. A replica that fails after a
+ * connection was handed out fails that transaction like any other database error.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route { PRIMARY, REPLICA }
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long retryAfterNanos;
+    private volatile long replicaDownUntilNanos;
+    private volatile boolean replicaDown;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration retryAfter) {
+        this.primary = primary;
+        this.replica = replica;
+        this.retryAfterNanos = retryAfter.toNanos();
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Route.PRIMARY;
+        }
+        return replicaDown && System.nanoTime() - replicaDownUntilNanos < 0 ? Route.PRIMARY : Route.REPLICA;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (determineCurrentLookupKey() == Route.PRIMARY) {
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getConnection();
+            if (replicaDown) {
+                replicaDown = false;
+                System.out.println("Read replica is available again");
+            }
+            return connection;
+        } catch (SQLException e) {
+            replicaDownUntilNanos = System.nanoTime() + retryAfterNanos;
+            replicaDown = true;
+            System.out.println("Read replica unavailable, reading from the primary for "
+                    + retryAfterNanos / 1_000_000_000L + " s: " + e.getMessage());
+            return primary.getConnection();
+        }
+    }
+}
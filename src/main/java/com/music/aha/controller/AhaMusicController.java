@@ -1,16 +1,35 @@
 package com.music.aha.controller;
 
-import com.music.aha.model.AhaMusic;
+import com.music.aha.csv.MultipartInputStream;
+import com.music.aha.model.MusicSummary;
+import com.music.aha.model.Recognition;
 import com.music.aha.service.AhaMusicService;
-import com.music.aha.service.AhaMusicService.CleanupResult;
+import com.music.aha.service.ImportJob;
+import com.music.aha.service.ImportJobService;
+import com.music.aha.service.ImportMode;
+import com.music.aha.service.ImportReport;
+import com.music.aha.service.MusicSearchService;
+import com.music.aha.service.SongCache;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.nio.file.Paths;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.File;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/music")
@@ -20,58 +39,269 @@ public class AhaMusicController {
     @Autowired
     private AhaMusicService musicService;
 
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private MusicSearchService searchService;
+
     @GetMapping("/all")
-    public ResponseEntity<List<AhaMusic>> getAllMusic() {
-        return ResponseEntity.ok(musicService.getAllUniqueRecords());
+    public ResponseEntity<List<MusicSummary>> getAllMusic() {
+        return ResponseEntity.ok(musicService.getAllSummaries());
+    }
+
+    /**
+     * The whole library as newline-delimited JSON, streamed while it is read from the database.
+     * Prefer this over {@code /all} for large libraries.
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportAllMusic() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(musicService::exportAllAsNdjson);
+    }
+
+    /**
+     * The library, or every recognition if {@code history}, as an aha-music-export CSV that the
+     * import endpoints accept again; gzip-compressed if {@code gzip}. Streamed from the database with
+     * COPY, bypassing JPA.
+     */
+    @GetMapping("/export/csv")
+    public ResponseEntity<StreamingResponseBody> exportCsv(@RequestParam(defaultValue = "false") boolean history,
+                                                           @RequestParam(defaultValue = "false") boolean gzip) {
+        String fileName = "aha-music-export_" + LocalDate.now() + (gzip ? ".csv.gz" : ".csv");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 64 * 1024);
+                musicService.exportCsv(compressed, history);
+                compressed.finish();
+            } else {
+                musicService.exportCsv(out, history);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : MediaType.parseMediaType("text/csv"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
     }
 
     @GetMapping("/page")
-    public ResponseEntity<Page<AhaMusic>> getMusicPage(
+    public ResponseEntity<Page<MusicSummary>> getMusicPage(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size) {
         Pageable pageable = PageRequest.of(page, size);
-        return ResponseEntity.ok(musicService.getAllUniqueRecords(pageable));
+        return ResponseEntity.ok(musicService.getUniqueSummaries(pageable));
+    }
+
+    /**
+     * Cursor-paged listing, newest first. Pass the {@code nextCursor} of a response to get the page
+     * after it; unlike {@code /page}, deep pages are as fast as the first one.
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<?> getMusicSlice(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(musicService.getMusicSlice(cursor, Math.min(Math.max(size, 1), 1000)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Every recognition from {@code from} up to (not including) {@code to}, newest first, one page
+     * at a time; pass the returned {@code nextCursor} to get the next page.
+     */
+    @GetMapping("/recognitions")
+    public ResponseEntity<?> getRecognitions(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "from must be before to"));
+        }
+        try {
+            return ResponseEntity.ok(musicService.getRecognitions(from.atStartOfDay(), to.atStartOfDay(), cursor,
+                    Math.min(Math.max(size, 1), 1000)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Songs whose title or artists contain or resemble {@code q}, best match first.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchMusic(@RequestParam String q,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "20") int size) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Query must not be empty"));
+        }
+        try {
+            return ResponseEntity.ok(searchService.search(q, Math.max(page, 0), Math.min(Math.max(size, 1), 100)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Every recognition of a song, newest first, with the resulting play count.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<?> getHistory(@RequestParam String title, @RequestParam String artists) {
+        List<Recognition> recognitions = musicService.getHistory(title, artists);
+        return ResponseEntity.ok(Map.of(
+                "title", title,
+                "artists", artists,
+                "playCount", recognitions.size(),
+                "recognitions", recognitions));
     }
 
     @GetMapping("/import")
     @PostMapping("/import")
-    public ResponseEntity<String> importCsvFile() {
+    public ResponseEntity<?> importCsvFile(@RequestParam(defaultValue = "false") boolean parallel,
+                                           @RequestParam(defaultValue = "false") boolean full,
+                                           @RequestParam(defaultValue = "false") boolean dryRun) {
         try {
-            java.io.File latestCsv = AhaMusicService.getLatestAhaMusicCsv();
+            File latestCsv = musicService.getLatestAhaMusicCsv();
             if (latestCsv == null) {
                 return ResponseEntity.internalServerError()
-                        .body("No suitable aha-music-export_YYYY-MM-DD.csv file found in E:\\Downloads");
+                        .body(Map.of("error", "No suitable aha-music-export_YYYY-MM-DD.csv file found in " + musicService.getImportDirectory()));
             }
-            String filePath = latestCsv.getAbsolutePath();
-            long beforeCount = musicService.getUniqueRecordCount();
-            musicService.importCsvFile(filePath);
-            long afterCount = musicService.getUniqueRecordCount();
-            long newRecords = afterCount - beforeCount;
-
-            return ResponseEntity.ok(String.format("CSV file '%s' imported successfully. Added %d new unique records. Total records: %d",
-                    latestCsv.getName(), newRecords, afterCount));
+            ImportReport report = new ImportReport(dryRun);
+            musicService.importCsvFile(latestCsv, importMode(parallel, full), report);
+            return ResponseEntity.ok(Map.of("fileName", latestCsv.getName(), "report", report));
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
-                .body("Error importing CSV file: " + e.getMessage());
+                    .body(Map.of("error", "Error importing CSV file: " + e.getMessage()));
         }
     }
 
+    /**
+     * Imports an export sent in the request body, either as the file part of a multipart form or as
+     * the raw body. The body is parsed while it is being received rather than stored first. Raw
+     * gzip or zip bodies are recognised by their content type or by the {@code fileName} parameter.
+     */
+    @PostMapping(value = "/import/upload", consumes = {MediaType.MULTIPART_FORM_DATA_VALUE, "text/csv",
+            MediaType.APPLICATION_OCTET_STREAM_VALUE, "application/gzip", "application/zip"})
+    public ResponseEntity<?> uploadCsvFile(HttpServletRequest request,
+                                           @RequestParam(required = false) String fileName,
+                                           @RequestParam(defaultValue = "false") boolean dryRun) {
+        try {
+            MediaType contentType = MediaType.parseMediaType(request.getContentType());
+            InputStream body = request.getInputStream();
+            if (MediaType.MULTIPART_FORM_DATA.includes(contentType)) {
+                MultipartInputStream part = MultipartInputStream.openFilePart(body, request.getContentType());
+                body = part;
+                fileName = part.getFileName();
+            } else if (fileName == null) {
+                fileName = switch (contentType.getSubtype()) {
+                    case "gzip" -> "upload.csv.gz";
+                    case "zip" -> "upload.zip";
+                    default -> "upload.csv";
+                };
+            }
+            ImportReport report = new ImportReport(dryRun);
+            musicService.importCsvStream(body, fileName, report);
+            return ResponseEntity.ok(Map.of("fileName", fileName, "report", report));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Error importing uploaded CSV: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/import/jobs")
+    public ResponseEntity<?> startImportJob(@RequestParam(defaultValue = "false") boolean parallel,
+                                            @RequestParam(defaultValue = "false") boolean full,
+                                            @RequestParam(defaultValue = "false") boolean dryRun) {
+        File latestCsv = musicService.getLatestAhaMusicCsv();
+        if (latestCsv == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No suitable aha-music-export_YYYY-MM-DD.csv file found in " + musicService.getImportDirectory()));
+        }
+        try {
+            return ResponseEntity.accepted().body(importJobService.submit(latestCsv, importMode(parallel, full), dryRun));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Too many import jobs queued, try again later"));
+        }
+    }
+
+    @PostMapping("/import/backfill")
+    public ResponseEntity<?> startBackfillJob(@RequestParam(defaultValue = "false") boolean dryRun) {
+        List<File> csvFiles = musicService.getAllAhaMusicCsvs();
+        if (csvFiles.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No aha-music-export_YYYY-MM-DD.csv files found in " + musicService.getImportDirectory()));
+        }
+        try {
+            return ResponseEntity.accepted().body(importJobService.submitBackfill(csvFiles, dryRun));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Too many import jobs queued, try again later"));
+        }
+    }
+
+    @GetMapping("/import/jobs")
+    public ResponseEntity<List<ImportJob>> getImportJobs() {
+        return ResponseEntity.ok(importJobService.list());
+    }
+
+    @GetMapping("/import/jobs/{id}")
+    public ResponseEntity<ImportJob> getImportJob(@PathVariable String id) {
+        return ResponseEntity.of(importJobService.find(id));
+    }
+
+    @GetMapping(value = "/import/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamImportJob(@PathVariable String id,
+                                                      @RequestParam(defaultValue = "1000") long intervalMs) {
+        return importJobService.find(id)
+                .map(job -> ResponseEntity.ok(importJobService.stream(job, Math.max(intervalMs, 100))))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/import/jobs/{id}")
+    public ResponseEntity<ImportJob> cancelImportJob(@PathVariable String id) {
+        return importJobService.cancel(id)
+                .map(job -> ResponseEntity.accepted().body(job))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static ImportMode importMode(boolean parallel, boolean full) {
+        if (parallel) {
+            return ImportMode.PARALLEL;
+        }
+        return full ? ImportMode.FULL : ImportMode.INCREMENTAL;
+    }
+
+    /**
+     * Songs not yet added to a playlist, newest first, one page at a time; pass the returned
+     * {@code nextCursor} to get the next page.
+     */
     @GetMapping("/available-for-playlist")
-    public ResponseEntity<List<AhaMusic>> getAvailableForPlaylist() {
-        return ResponseEntity.ok(musicService.findByAddedToPlaylist(false));
+    public ResponseEntity<?> getAvailableForPlaylist(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int size) {
+        try {
+            return ResponseEntity.ok(musicService.getAvailableForPlaylist(cursor, Math.min(Math.max(size, 1), 1000)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
+    // Legacy: the song_key migration (V7) merged every duplicate and uk_aha_music_song_key keeps new
+    // ones out, so there is never anything to remove. Kept, without touching the database, so
+    // existing clients still get their answer.
     @GetMapping("/cleanup")
     @PostMapping("/cleanup")
     public ResponseEntity<String> cleanupDuplicates() {
-        try {
-            CleanupResult result = musicService.cleanupDuplicates();
-            return ResponseEntity.ok(String.format(
-                "Cleanup completed successfully. Original records: %d, After cleanup: %d, Removed duplicates: %d",
-                result.getOriginalCount(), result.getNewCount(), result.getRemovedDuplicates()));
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError()
-                .body("Error cleaning up duplicates: " + e.getMessage());
-        }
+        return ResponseEntity.ok("Cleanup completed successfully. Removed duplicates: 0");
+    }
+
+    @GetMapping("/cache-stats")
+    public ResponseEntity<SongCache.Stats> getSongCacheStats() {
+        return ResponseEntity.ok(musicService.getSongCacheStats());
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.music.aha.controller;
+
+import com.music.aha.model.ArtistPlays;
+import com.music.aha.model.ListeningTotals;
+import com.music.aha.model.SongPlays;
+import com.music.aha.service.ListeningStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/music/analytics")
+@CrossOrigin(origins = "http://localhost:4200")
+public class ListeningStatsController {
+
+    @Autowired
+    private ListeningStatsService statsService;
+
+    @GetMapping("/top-songs")
+    public ResponseEntity<List<SongPlays>> getTopSongs(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(statsService.getTopSongs(Math.min(Math.max(limit, 1), 1000)));
+    }
+
+    @GetMapping("/top-artists")
+    public ResponseEntity<List<ArtistPlays>> getTopArtists(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(statsService.getTopArtists(Math.min(Math.max(limit, 1), 1000)));
+    }
+
+    /**
+     * Recognitions, new songs and repeats per {@code day} or {@code week} from {@code from} up to
+     * (not including) {@code to}.
+     */
+    @GetMapping("/recognitions")
+    public ResponseEntity<?> getRecognitionCounts(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String period) {
+        if (!from.isBefore(to)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "from must be before to"));
+        }
+        return switch (period) {
+            case "day" -> ResponseEntity.ok(statsService.getDailyCounts(from, to));
+            case "week" -> ResponseEntity.ok(statsService.getWeeklyCounts(from, to));
+            default -> ResponseEntity.badRequest().body(Map.of("error", "period must be day or week"));
+        };
+    }
+
+    /**
+     * All-time recognitions and distinct songs, and the share of recognitions that were new songs.
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<ListeningTotals> getTotals() {
+        return ResponseEntity.ok(statsService.getTotals());
+    }
+}
@@ -6,6 +6,7 @@ import com.music.aha.service.JwtUtils;
 import com.music.aha.service.RefreshTokenService;
 import com.music.aha.model.User;
 import com.music.aha.model.RefreshToken;
+import com.music.aha.model.SongKey;
 import com.music.aha.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,9 +23,12 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.net.URLEncoder;
 import java.time.Duration;
 import java.util.UUID;
@@ -106,10 +110,22 @@ public class YouTubeController {
                 songInfos.add(new YouTubeService.SongInfo(song.getTitle(), song.getArtists()));
             }
 
-            List<String> videoIds = youTubeService.searchVideos(songInfos, credential);
+            YouTubeService.VideoSearch search = youTubeService.searchVideos(songInfos, credential);
+            List<String> videoIds = search.getVideoIds();
+            List<Map<String, String>> timedOutSongs = new ArrayList<>();
+            Set<UUID> timedOutKeys = new HashSet<>();
+            for (YouTubeService.SongInfo song : search.getTimedOut()) {
+                timedOutSongs.add(Map.of(
+                    "title", Objects.requireNonNullElse(song.getTitle(), ""),
+                    "artists", Objects.requireNonNullElse(song.getArtists(), "")));
+                timedOutKeys.add(SongKey.of(song.getTitle(), song.getArtists()));
+            }
             if (videoIds.isEmpty()) {
+                String error = timedOutSongs.isEmpty()
+                    ? "No videos found for the available songs"
+                    : "No videos found for the available songs; " + timedOutSongs.size() + " searches timed out";
                 return ResponseEntity.badRequest()
-                    .body(Map.of("error", "No videos found for the available songs"));
+                    .body(Map.of("error", error, "timedOutSongs", timedOutSongs));
             }
             
             // Create the playlist under the authenticated user's account
@@ -120,10 +136,14 @@ public class YouTubeController {
             }
             
             // Mark the songs as added to playlist
+            List<UUID> songKeys = new ArrayList<>();
             for (com.music.aha.model.AhaMusic record : recordsToUpdate) {
-                record.setAddedToPlaylist(true);
-                ahaMusicService.save(record);
+                // A timed-out song was never searched for, so it stays available for the next playlist
+                if (!timedOutKeys.contains(record.getSongKey())) {
+                    songKeys.add(record.getSongKey());
+                }
             }
+            ahaMusicService.markAddedToPlaylist(songKeys);
             
             // Extract playlist ID from URL for caching
             String playlistId = null;
@@ -135,9 +155,11 @@ public class YouTubeController {
                 "playlistUrl", playlistUrl,
                 "playlistId", playlistId,
                 "videoCount", videoIds.size(),
-                "addedCount", availableSongs.size(),
+                "addedCount", songKeys.size(),
                 "alreadyAddedCount", alreadyAddedSongs.size(),
                 "notFoundCount", notFoundSongs.size(),
+                "timedOutCount", timedOutSongs.size(),
+                "timedOutSongs", timedOutSongs,
                 "requestedCount", songs.size()
             ));
         } catch (IllegalStateException e) {
@@ -0,0 +1,376 @@
+package com.music.aha.csv;
+
+import com.music.aha.model.AhaMusic;
+import com.music.aha.model.SongKey;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Layout of the aha-music-export CSV and the "latest recognition per song key" reduction
+ * shared by the sequential and parallel import paths.
+ */
+public final class AhaMusicCsv {
+
+    public static final int COL_ACR_ID = 0;
+    public static final int COL_TITLE = 1;
+    public static final int COL_ARTISTS = 2;
+    public static final int COL_TIME = 3;
+    public static final int COL_SOURCE_URL = 4;
+    public static final int COL_DETAIL_URL = 5;
+    public static final int COLUMN_COUNT = 6;
+
+    // aha-music-export_YYYY-MM-DD.csv, optionally archived as .csv.gz or .zip
+    private static final Pattern EXPORT_FILE_NAME =
+            Pattern.compile("aha-music-export_(\\d{4}-\\d{2}-\\d{2})\\.(csv|csv\\.gz|zip)");
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_AHEAD_BLOCKS = 16;
+
+    private AhaMusicCsv() {}
+
+    /**
+     * The export date (yyyy-MM-dd) encoded in an export file name, or null if the name does not
+     * look like an export.
+     */
+    public static String exportDate(String fileName) {
+        Matcher matcher = EXPORT_FILE_NAME.matcher(fileName);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    public static boolean isCompressed(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".gz") || name.endsWith(".zip");
+    }
+
+    /**
+     * Opens an export for streaming. {@code .gz} and {@code .zip} files are decompressed on the fly,
+     * without temporary files.
+     */
+    public static InputStream openStream(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        try {
+            return decompress(in, file.getFileName().toString());
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Wraps {@code in} in a decompressor chosen by the file name extension. For a zip archive the
+     * stream is positioned at the first {@code .csv} entry. Decompression runs a few blocks ahead
+     * on its own thread so it overlaps with parsing.
+     */
+    public static InputStream decompress(InputStream in, String fileName) throws IOException {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            return readAhead(new GZIPInputStream(in, STREAM_BUFFER_SIZE));
+        }
+        if (name.endsWith(".zip")) {
+            ZipInputStream zip = new ZipInputStream(new BufferedInputStream(in, STREAM_BUFFER_SIZE));
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory() && entry.getName().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+                    return readAhead(zip);
+                }
+            }
+            throw new IOException("No CSV entry found in " + fileName);
+        }
+        return in;
+    }
+
+    private static InputStream readAhead(InputStream in) {
+        return new ReadAheadInputStream(in, STREAM_BUFFER_SIZE, READ_AHEAD_BLOCKS);
+    }
+
+    /**
+     * Reads the current record and computes its song key.
+     *
+     * @return null if the record is malformed (missing columns or an unreadable time)
+     */
+    public static AhaMusic read(CsvReader csv) {
+        if (csv.fieldCount() < COLUMN_COUNT) {
+            return null;
+        }
+        LocalDateTime time;
+        try {
+            time = csv.getDateTime(COL_TIME);
+        } catch (DateTimeException e) {
+            return null;
+        }
+        AhaMusic music = new AhaMusic();
+        music.setAcrId(csv.getString(COL_ACR_ID));
+        music.setTitle(csv.getString(COL_TITLE));
+        music.setArtists(csv.getString(COL_ARTISTS));
+        music.setTime(time);
+        music.setSourceUrl(csv.getString(COL_SOURCE_URL));
+        music.setDetailUrl(csv.getString(COL_DETAIL_URL));
+        music.setSongKey(SongKey.of(music.getTitle(), music.getArtists()));
+        return music;
+    }
+
+    /**
+     * Adds the record to {@code latest} unless an equally recent or newer recognition of the same
+     * song is already there.
+     */
+    public static void keepLatest(Map<UUID, AhaMusic> latest, AhaMusic music) {
+        // Only keep the most recent occurrence of a title-artist combination
+        latest.merge(music.getSongKey(), music,
+                (kept, candidate) -> candidate.getTime().isAfter(kept.getTime()) ? candidate : kept);
+    }
+
+    /**
+     * Parses the file on {@code parallelism} threads and returns the latest recognition per song.
+     * The number of data rows read is added to {@code rowsParsed}, the malformed ones among them to
+     * {@code malformed}.
+     *
+     * @see #parseLatest(List, int, LongAdder, LongAdder, Consumer, int)
+     */
+    public static Map<UUID, AhaMusic> parseLatest(Path file, int parallelism, LongAdder rowsParsed,
+                                                    LongAdder malformed) throws IOException {
+        return parseLatest(List.of(file), parallelism, rowsParsed, malformed, null, 0);
+    }
+
+    /**
+     * Parses several files on {@code parallelism} threads and returns the latest recognition per
+     * song across all of them. Each file is memory-mapped and cut into segments on record
+     * boundaries, with larger files getting more segments. Every segment is reduced on its own and
+     * the partial maps are merged in file and segment order, so ties resolve exactly as in a
+     * sequential pass over the files in the given order (the first occurrence wins). The number
+     * of data rows read is added to {@code rowsParsed}, the malformed ones among them to
+     * {@code malformed}.
+     * <p>
+     * If {@code rowSink} is set, every well-formed row is also handed to it, in batches of up to
+     * {@code sinkBatchSize}, from the parsing threads and in no particular order.
+     * <p>
+     * If any segment fails, including by an exception from {@code rowSink}, the other segments
+     * stop at their next record. This method returns only after every parsing thread has finished
+     * and then throws the first failure.
+     */
+    public static Map<UUID, AhaMusic> parseLatest(List<Path> files, int parallelism, LongAdder rowsParsed,
+                                                    LongAdder malformed, Consumer<List<AhaMusic>> rowSink,
+                                                    int sinkBatchSize) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(parallelism, 1));
+        Counters counters = new Counters(rowsParsed, malformed, rowSink, sinkBatchSize);
+        List<FileChannel> channels = new ArrayList<>();
+        try {
+            long totalSize = 0;
+            for (Path file : files) {
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                channels.add(channel);
+                totalSize += channel.size();
+            }
+
+            List<Piece> pieces = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                FileChannel channel = channels.get(i);
+                if (isCompressed(files.get(i))) {
+                    // Compressed data cannot be split, so the whole file is decompressed by one task
+                    pieces.add(new Piece(files.get(i), null, null));
+                    continue;
+                }
+                // Spread the threads over the files in proportion to their size
+                int segments = totalSize == 0 ? 1
+                        : (int) Math.max(1, Math.round((double) parallelism * channel.size() / totalSize));
+                for (CsvFileSegmenter.Segment segment : CsvFileSegmenter.split(channel, segments, pool)) {
+                    pieces.add(new Piece(files.get(i), channel, segment));
+                }
+            }
+            if (pieces.isEmpty()) {
+                return new HashMap<>();
+            }
+            return pool.invoke(new SegmentTask(pieces, 0, pieces.size(), counters));
+        } catch (RuntimeException | Error e) {
+            // The task that failed first, not a sibling that was stopped because of it
+            Throwable first = counters.failure.get();
+            Throwable cause = first != null ? first : e;
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw (Error) cause;
+        } finally {
+            // After a failure the pool may still be running segments; they must be done with the
+            // channels and the row sink before either is released to the caller
+            pool.shutdownNow();
+            awaitTermination(pool);
+            for (FileChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    private static void awaitTermination(ForkJoinPool pool) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<UUID, AhaMusic> parseSegment(Piece piece, Counters counters) {
+        Map<UUID, AhaMusic> latest = new HashMap<>();
+        List<AhaMusic> batch = counters.rowSink != null ? new ArrayList<>(counters.sinkBatchSize) : null;
+        long rows = 0;
+        long malformedRows = 0;
+        try (Reader reader = piece.open()) {
+            CsvReader csv = new CsvReader(reader);
+            // Skip the header line
+            if (piece.segment == null || piece.segment.getStart() == 0) {
+                csv.next();
+            }
+            while (csv.next()) {
+                counters.checkNotFailed();
+                rows++;
+                AhaMusic music = read(csv);
+                if (music == null) {
+                    malformedRows++;
+                    continue;
+                }
+                keepLatest(latest, music);
+                if (batch != null) {
+                    batch.add(music);
+                    if (batch.size() >= counters.sinkBatchSize) {
+                        counters.rowSink.accept(batch);
+                        batch = new ArrayList<>(counters.sinkBatchSize);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (batch != null && !batch.isEmpty()) {
+            counters.checkNotFailed();
+            counters.rowSink.accept(batch);
+        }
+        counters.rowsParsed.add(rows);
+        counters.malformed.add(malformedRows);
+        return latest;
+    }
+
+    // Merges two partial results; on equal times the entry from the earlier part of the file wins
+    private static Map<UUID, AhaMusic> merge(Map<UUID, AhaMusic> earlier, Map<UUID, AhaMusic> later) {
+        if (earlier.size() >= later.size()) {
+            later.forEach((key, music) -> earlier.merge(key, music,
+                    (kept, candidate) -> candidate.getTime().isAfter(kept.getTime()) ? candidate : kept));
+            return earlier;
+        }
+        earlier.forEach((key, music) -> later.merge(key, music,
+                (kept, candidate) -> kept.getTime().isAfter(candidate.getTime()) ? kept : candidate));
+        return later;
+    }
+
+    // One segment of one of the files being parsed, or a whole compressed file (no segment)
+    private static class Piece {
+        private final Path file;
+        private final FileChannel channel;
+        private final CsvFileSegmenter.Segment segment;
+
+        Piece(Path file, FileChannel channel, CsvFileSegmenter.Segment segment) {
+            this.file = file;
+            this.channel = channel;
+            this.segment = segment;
+        }
+
+        Reader open() throws IOException {
+            if (segment == null) {
+                return new InputStreamReader(openStream(file), StandardCharsets.UTF_8);
+            }
+            return CsvFileSegmenter.open(channel, segment);
+        }
+    }
+
+    // Shared by all segment tasks of one parse
+    private static class Counters {
+        private final LongAdder rowsParsed;
+        private final LongAdder malformed;
+        private final Consumer<List<AhaMusic>> rowSink;
+        private final int sinkBatchSize;
+        // First failure of any segment; the others stop once it is set
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Counters(LongAdder rowsParsed, LongAdder malformed, Consumer<List<AhaMusic>> rowSink, int sinkBatchSize) {
+            this.rowsParsed = rowsParsed;
+            this.malformed = malformed;
+            this.rowSink = rowSink;
+            this.sinkBatchSize = Math.max(sinkBatchSize, 1);
+        }
+
+        void checkNotFailed() {
+            if (failure.get() != null) {
+                throw new CancellationException("Stopped because another segment failed");
+            }
+        }
+    }
+
+    private static class SegmentTask extends RecursiveTask<Map<UUID, AhaMusic>> {
+        private final List<Piece> pieces;
+        private final int from;
+        private final int to;
+        private final Counters counters;
+
+        SegmentTask(List<Piece> pieces, int from, int to, Counters counters) {
+            this.pieces = pieces;
+            this.from = from;
+            this.to = to;
+            this.counters = counters;
+        }
+
+        @Override
+        protected Map<UUID, AhaMusic> compute() {
+            if (to - from == 1) {
+                try {
+                    return parseSegment(pieces.get(from), counters);
+                } catch (RuntimeException | Error e) {
+                    counters.failure.compareAndSet(null, e);
+                    throw e;
+                }
+            }
+            int mid = (from + to) >>> 1;
+            SegmentTask left = new SegmentTask(pieces, from, mid, counters);
+            SegmentTask right = new SegmentTask(pieces, mid, to, counters);
+            right.fork();
+            Map<UUID, AhaMusic> earlier = left.compute();
+            return merge(earlier, right.join());
+        }
+    }
+}
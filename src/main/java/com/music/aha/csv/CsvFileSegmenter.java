@@ -0,0 +1,204 @@
+package com.music.aha.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a memory-mapped CSV file into byte ranges that start and end on record boundaries, so each
+ * range can be parsed by its own {@link CsvReader}.
+ * <p>
+ * Boundaries are quote-aware: the quote parity at each cut is known from a parallel count of quote
+ * bytes, so a line break inside a quoted field never ends a segment. This holds for RFC 4180 input,
+ * where quotes only appear around fields or doubled inside them.
+ */
+public final class CsvFileSegmenter {
+
+    // A single mapping cannot exceed 2 GB, so segments are capped well below that
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int SCAN_WINDOW_BYTES = 1 << 20;
+
+    public static final class Segment {
+        private final long start;
+        private final long end;
+
+        Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+    }
+
+    private CsvFileSegmenter() {}
+
+    /**
+     * Splits the file into at most {@code count} segments (more if the file is too large to map in
+     * that many pieces). Quote counting runs on the given executor.
+     */
+    public static List<Segment> split(FileChannel channel, int count, ExecutorService executor) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return List.of();
+        }
+        int segments = (int) Math.max(Math.max(count, 1), (size + MAX_SEGMENT_BYTES - 1) / MAX_SEGMENT_BYTES);
+        long step = (size + segments - 1) / segments;
+
+        // Phase 1: count quote bytes per naive range in parallel
+        List<Callable<Long>> counters = new ArrayList<>();
+        for (int i = 0; i < segments; i++) {
+            long from = Math.min(size, i * step);
+            long to = Math.min(size, from + step);
+            counters.add(() -> countQuotes(channel, from, to));
+        }
+        List<Long> quoteCounts = invokeAll(executor, counters);
+
+        // Phase 2: move every naive cut forward to the next line break outside quotes
+        List<Segment> result = new ArrayList<>();
+        long start = 0;
+        long quotesBefore = 0;
+        for (int i = 1; i < segments && start < size; i++) {
+            quotesBefore += quoteCounts.get(i - 1);
+            long naiveCut = Math.min(size, i * step);
+            if (naiveCut <= start) {
+                continue;
+            }
+            long cut = nextRecordStart(channel, naiveCut, (quotesBefore & 1) == 1);
+            if (cut > start) {
+                result.add(new Segment(start, cut));
+                start = cut;
+            }
+        }
+        if (start < size) {
+            result.add(new Segment(start, size));
+        }
+        return result;
+    }
+
+    /**
+     * Opens a UTF-8 reader over the mapped bytes of a segment.
+     */
+    public static Reader open(FileChannel channel, Segment segment) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                segment.getStart(), segment.getEnd() - segment.getStart());
+        return new InputStreamReader(new ByteBufferInputStream(buffer), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the offset just past the last line break outside quotes in {@code [from, to)}, or
+     * {@code from} if the range holds no complete record. {@code from} must be a record boundary.
+     * Used to stop before a trailing record that is still being written.
+     */
+    public static long lastRecordEnd(FileChannel channel, long from, long to) throws IOException {
+        long recordEnd = from;
+        boolean inQuotes = false;
+        long position = from;
+        while (position < to) {
+            int length = (int) Math.min(SCAN_WINDOW_BYTES, to - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                byte b = window.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    recordEnd = position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return recordEnd;
+    }
+
+    private static long countQuotes(FileChannel channel, long from, long to) throws IOException {
+        if (to <= from) {
+            return 0;
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        long quotes = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    private static long nextRecordStart(FileChannel channel, long from, boolean inQuotes) throws IOException {
+        long size = channel.size();
+        long position = from;
+        while (position < size) {
+            int length = (int) Math.min(SCAN_WINDOW_BYTES, size - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            for (int i = 0; i < length; i++) {
+                byte b = window.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    return position + i + 1;
+                }
+            }
+            position += length;
+        }
+        return size;
+    }
+
+    private static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while splitting CSV file", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to split CSV file", cause);
+        }
+        return results;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, n);
+            return n;
+        }
+    }
+}
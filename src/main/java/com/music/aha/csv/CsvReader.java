@@ -0,0 +1,239 @@
+package com.music.aha.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+
+/**
+ * Single-pass RFC 4180 CSV tokenizer.
+ * <p>
+ * Records are scanned once from a reusable char buffer. Quoted fields may contain commas,
+ * escaped quotes ({@code ""}) and line breaks. The fields of the current record are kept in one
+ * shared buffer and are only turned into objects when a typed getter is called, so stepping over
+ * a record allocates nothing.
+ */
+public class CsvReader implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final Reader reader;
+    private final char[] buf;
+    private int pos;
+    private int limit;
+
+    // Contents of the current record: field i spans fieldChars[fieldEnds[i - 1], fieldEnds[i])
+    private char[] fieldChars = new char[256];
+    private int[] fieldEnds = new int[16];
+    private int charCount;
+    private int fieldCount;
+    private long recordNumber;
+
+    public CsvReader(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvReader(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buf = new char[bufferSize];
+    }
+
+    /**
+     * Advances to the next record. Blank lines between records are skipped.
+     *
+     * @return false once the input is exhausted
+     * @throws IOException if reading fails or the input ends inside a quoted field
+     */
+    public boolean next() throws IOException {
+        fieldCount = 0;
+        charCount = 0;
+
+        int c = read();
+        while (c == '\n' || c == '\r') {
+            c = read();
+        }
+        if (c < 0) {
+            return false;
+        }
+
+        while (true) {
+            if (c == '"') {
+                c = readQuoted();
+            }
+            c = readUnquoted(c);
+            endField();
+
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r') {
+                // Swallow the \n of a \r\n line ending
+                if (read() != '\n') {
+                    unread();
+                }
+            }
+            recordNumber++;
+            return true;
+        }
+    }
+
+    /**
+     * Number of fields in the current record.
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * 1-based number of the current record, counting the header.
+     */
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    public String getString(int index) {
+        int start = fieldStart(index);
+        return new String(fieldChars, start, fieldEnds[index] - start);
+    }
+
+    /**
+     * Parses the field as a {@code yyyy-MM-dd HH:mm:ss} timestamp. The fixed layout used by the
+     * export is decoded straight from the field buffer; anything else goes through
+     * {@link DateTimeFormatter}, which reports malformed values.
+     */
+    public LocalDateTime getDateTime(int index) {
+        int start = fieldStart(index);
+        int length = fieldEnds[index] - start;
+        if (length == 19 && isDateTimeLayout(start)) {
+            return LocalDateTime.of(
+                    digits(start, 4), digits(start + 5, 2), digits(start + 8, 2),
+                    digits(start + 11, 2), digits(start + 14, 2), digits(start + 17, 2));
+        }
+        return LocalDateTime.parse(getString(index), DATE_TIME_FORMAT);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Reads the body of a quoted field after its opening quote and returns the char after the closing quote
+    private int readQuoted() throws IOException {
+        while (true) {
+            int start = pos;
+            while (pos < limit && buf[pos] != '"') {
+                pos++;
+            }
+            append(buf, start, pos - start);
+
+            int c = read();
+            if (c < 0) {
+                throw new IOException("Unterminated quoted field in record " + (recordNumber + 1));
+            }
+            if (c != '"') {
+                // The scan stopped at the end of the buffer, not at a quote
+                append((char) c);
+                continue;
+            }
+            c = read();
+            if (c != '"') {
+                return c;
+            }
+            append('"');
+        }
+    }
+
+    // Reads an unquoted run starting with c and returns the delimiter that ended it (or -1 at EOF)
+    private int readUnquoted(int c) throws IOException {
+        while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+            append((char) c);
+            int start = pos;
+            while (pos < limit) {
+                char ch = buf[pos];
+                if (ch == ',' || ch == '\n' || ch == '\r') {
+                    break;
+                }
+                pos++;
+            }
+            append(buf, start, pos - start);
+            c = read();
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            int n = reader.read(buf, 0, buf.length);
+            if (n <= 0) {
+                return -1;
+            }
+            pos = 0;
+            limit = n;
+        }
+        return buf[pos++];
+    }
+
+    private void unread() {
+        if (pos > 0) {
+            pos--;
+        }
+    }
+
+    private void append(char c) {
+        if (charCount == fieldChars.length) {
+            fieldChars = Arrays.copyOf(fieldChars, fieldChars.length * 2);
+        }
+        fieldChars[charCount++] = c;
+    }
+
+    private void append(char[] src, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+        if (charCount + length > fieldChars.length) {
+            fieldChars = Arrays.copyOf(fieldChars, Math.max(fieldChars.length * 2, charCount + length));
+        }
+        System.arraycopy(src, offset, fieldChars, charCount, length);
+        charCount += length;
+    }
+
+    private void endField() {
+        if (fieldCount == fieldEnds.length) {
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldEnds.length * 2);
+        }
+        fieldEnds[fieldCount++] = charCount;
+    }
+
+    private int fieldStart(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of record " + recordNumber
+                    + " (" + fieldCount + " fields)");
+        }
+        return index == 0 ? 0 : fieldEnds[index - 1];
+    }
+
+    private boolean isDateTimeLayout(int start) {
+        char[] f = fieldChars;
+        return f[start + 4] == '-' && f[start + 7] == '-'
+                && (f[start + 10] == ' ' || f[start + 10] == 'T')
+                && f[start + 13] == ':' && f[start + 16] == ':';
+    }
+
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int d = fieldChars[i] - '0';
+            if (d < 0 || d > 9) {
+                throw new DateTimeParseException("Invalid date-time field",
+                        new String(fieldChars, start, count), i - start);
+            }
+            value = value * 10 + d;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,229 @@
+package com.music.aha.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Streams the first file part of a {@code multipart/form-data} body straight from the request,
+ * without the servlet container spooling the upload to memory or disk first. Form fields before the
+ * file are skipped; anything after it is never read. Memory use is one fixed buffer.
+ */
+public final class MultipartInputStream extends InputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+
+    private final InputStream source;
+    // CRLF "--" boundary, which ends every part
+    private final byte[] delimiter;
+    private final byte[] buf;
+    private int pos;
+    private int limit;
+    // Position of the next delimiter in buf, or -1; only valid until the buffer is refilled
+    private int delimiterIndex;
+    private boolean delimiterSearched;
+    private boolean partEnded;
+    private String fileName;
+
+    private MultipartInputStream(InputStream source, String boundary) {
+        this.source = source;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buf = new byte[Math.max(BUFFER_SIZE, MAX_HEADER_BYTES + delimiter.length)];
+        // The first delimiter is not preceded by a line break, so pretend it is
+        buf[0] = '\r';
+        buf[1] = '\n';
+        limit = 2;
+    }
+
+    /**
+     * Reads up to the body of the first part that carries a file name.
+     *
+     * @param contentType the request's {@code Content-Type}, which holds the boundary
+     * @throws IOException if the body is not valid multipart or contains no file part
+     */
+    public static MultipartInputStream openFilePart(InputStream source, String contentType) throws IOException {
+        String boundary = parameter(contentType, "boundary");
+        if (boundary == null || boundary.isEmpty()) {
+            throw new IOException("Missing multipart boundary in Content-Type");
+        }
+        MultipartInputStream in = new MultipartInputStream(source, boundary);
+        in.nextFilePart();
+        return in;
+    }
+
+    /**
+     * The file name sent with the part, as given by the client.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == 1 ? one[0] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (!partEnded) {
+            int next = findDelimiter();
+            // Without a match, the tail could still be the start of a delimiter split across reads
+            int safeEnd = next >= 0 ? next : limit - (delimiter.length - 1);
+            if (safeEnd > pos) {
+                int n = Math.min(length, safeEnd - pos);
+                System.arraycopy(buf, pos, bytes, offset, n);
+                pos += n;
+                return n;
+            }
+            if (next >= 0) {
+                partEnded = true;
+            } else if (!fillMore()) {
+                throw new IOException("Multipart body ended inside the file part");
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private void nextFilePart() throws IOException {
+        while (true) {
+            skipPastDelimiter();
+            if (!fill(2)) {
+                throw new IOException("Unexpected end of multipart body");
+            }
+            if (buf[pos] == '-' && buf[pos + 1] == '-') {
+                throw new IOException("No file part found in multipart body");
+            }
+            // Rest of the boundary line
+            readLine();
+
+            String disposition = null;
+            String line;
+            while (!(line = readLine()).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Disposition")) {
+                    disposition = line.substring(colon + 1);
+                }
+            }
+            String name = disposition != null ? parameter(disposition, "filename") : null;
+            if (name != null) {
+                fileName = name;
+                return;
+            }
+        }
+    }
+
+    private void skipPastDelimiter() throws IOException {
+        while (true) {
+            int next = findDelimiter();
+            if (next >= 0) {
+                pos = next + delimiter.length;
+                delimiterSearched = false;
+                return;
+            }
+            pos = Math.max(pos, limit - (delimiter.length - 1));
+            if (!fillMore()) {
+                throw new IOException("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        while (true) {
+            // Only look for the line end within the limit, however much a single read brought in
+            int end = Math.min(limit, pos + MAX_HEADER_BYTES);
+            for (int i = pos; i + 1 < end; i++) {
+                if (buf[i] == '\r' && buf[i + 1] == '\n') {
+                    String line = new String(buf, pos, i - pos, StandardCharsets.UTF_8);
+                    pos = i + 2;
+                    delimiterSearched = false;
+                    return line;
+                }
+            }
+            if (limit - pos >= MAX_HEADER_BYTES) {
+                throw new IOException("Multipart header line too long");
+            }
+            if (!fillMore()) {
+                throw new IOException("Unexpected end of multipart headers");
+            }
+        }
+    }
+
+    private int findDelimiter() {
+        if (!delimiterSearched) {
+            delimiterIndex = indexOf(delimiter, pos, limit);
+            delimiterSearched = true;
+        }
+        return delimiterIndex;
+    }
+
+    private int indexOf(byte[] pattern, int from, int to) {
+        byte first = pattern[0];
+        outer:
+        for (int i = from; i <= to - pattern.length; i++) {
+            if (buf[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < pattern.length; j++) {
+                if (buf[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private boolean fill(int count) throws IOException {
+        while (limit - pos < count) {
+            if (!fillMore()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Moves the unread bytes to the front and reads more; false at end of stream
+    private boolean fillMore() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        delimiterSearched = false;
+        int n = source.read(buf, limit, buf.length - limit);
+        if (n <= 0) {
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    // Value of a "; name=value" parameter in a header, unquoted
+    private static String parameter(String header, String name) {
+        if (header == null) {
+            return null;
+        }
+        for (String part : header.split(";")) {
+            int eq = part.indexOf('=');
+            if (eq > 0 && part.substring(0, eq).trim().toLowerCase(Locale.ROOT).equals(name)) {
+                String value = part.substring(eq + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+}
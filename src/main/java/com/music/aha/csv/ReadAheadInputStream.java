@@ -0,0 +1,140 @@
+package com.music.aha.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a source stream on a background thread, a bounded number of blocks ahead of the consumer.
+ * Used for compressed exports so that inflating runs concurrently with CSV parsing instead of
+ * on the same thread. Closing this stream stops the reader thread and closes the source.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    private static final byte[] END = new byte[0];
+
+    private final InputStream source;
+    private final int blockSize;
+    private final BlockingQueue<byte[]> blocks;
+    private final Thread producer;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    private byte[] current = new byte[0];
+    private int pos;
+
+    public ReadAheadInputStream(InputStream source, int blockSize, int blocksAhead) {
+        this.source = source;
+        this.blockSize = blockSize;
+        this.blocks = new ArrayBlockingQueue<>(blocksAhead);
+        this.producer = new Thread(this::produce, "csv-read-ahead");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) == 1 ? one[0] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (pos == current.length) {
+            if (current == END) {
+                return -1;
+            }
+            current = take();
+            pos = 0;
+            if (current == END) {
+                rethrowFailure();
+                return -1;
+            }
+        }
+        int n = Math.min(length, current.length - pos);
+        System.arraycopy(current, pos, bytes, offset, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        producer.interrupt();
+        blocks.clear();
+    }
+
+    // Hands whatever stopped the producer to the reader, unchecked failures included
+    private void rethrowFailure() throws IOException {
+        Throwable thrown = failure;
+        if (thrown instanceof IOException e) {
+            throw e;
+        }
+        if (thrown instanceof RuntimeException e) {
+            throw e;
+        }
+        if (thrown instanceof Error e) {
+            throw e;
+        }
+        if (thrown != null) {
+            throw new IOException(thrown);
+        }
+    }
+
+    private byte[] take() throws IOException {
+        try {
+            return blocks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data");
+        }
+    }
+
+    private void produce() {
+        try {
+            while (!closed) {
+                byte[] block = new byte[blockSize];
+                int n = source.readNBytes(block, 0, blockSize);
+                if (n > 0 && !enqueue(n == blockSize ? block : Arrays.copyOf(block, n))) {
+                    return;
+                }
+                // readNBytes only returns a short block at end of stream
+                if (n < blockSize) {
+                    break;
+                }
+            }
+        } catch (Throwable e) {
+            // Not just I/O errors: a reader waiting for END would otherwise block forever
+            failure = e;
+        } finally {
+            try {
+                source.close();
+            } catch (IOException | RuntimeException ignored) {
+                // Nothing left to read from it
+            } finally {
+                enqueue(END);
+            }
+        }
+    }
+
+    // Waits for room in the queue; gives up once the consumer has closed the stream
+    private boolean enqueue(byte[] block) {
+        try {
+            while (!closed) {
+                if (blocks.offer(block, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Closed by the consumer
+        }
+        return false;
+    }
+}
@@ -4,8 +4,11 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import jakarta.persistence.Column;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.UniqueConstraint;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
 @Table(name = "aha_music", 
@@ -19,6 +22,10 @@ public class AhaMusic {
     
     @Column(nullable = false)
     private String artists;
+
+    // SongKey of title and artists, unique; set on ingest and refreshed whenever JPA writes the row
+    @Column(name = "song_key", nullable = false)
+    private UUID songKey;
     
     private LocalDateTime time;
     private String sourceUrl;
@@ -55,6 +62,20 @@ public class AhaMusic {
         this.artists = artists;
     }
 
+    public UUID getSongKey() {
+        return songKey;
+    }
+
+    public void setSongKey(UUID songKey) {
+        this.songKey = songKey;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void updateSongKey() {
+        songKey = SongKey.of(title, artists);
+    }
+
     public LocalDateTime getTime() {
         return time;
     }
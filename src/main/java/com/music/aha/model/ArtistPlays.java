@@ -0,0 +1,10 @@
+package com.music.aha.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * How often songs by an artist (as credited on the export) were recognised. Read from the
+ * {@code listening_artist} rollup.
+ */
+public record ArtistPlays(String artists, long plays, LocalDateTime lastTime) {
+}
@@ -0,0 +1,37 @@
+package com.music.aha.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * How far an import source has been read: the file last imported, the byte offset up to which it
+ * was consumed and the most recent recognition time seen.
+ */
+@Entity
+@Table(name = "import_watermark")
+public class ImportWatermark {
+    @Id
+    private String source;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private long byteOffset;
+
+    private LocalDateTime maxTime;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public String getSource() { return source; }
+    public void setSource(String source) { this.source = source; }
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    public long getByteOffset() { return byteOffset; }
+    public void setByteOffset(long byteOffset) { this.byteOffset = byteOffset; }
+    public LocalDateTime getMaxTime() { return maxTime; }
+    public void setMaxTime(LocalDateTime maxTime) { this.maxTime = maxTime; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
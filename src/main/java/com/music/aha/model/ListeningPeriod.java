@@ -0,0 +1,10 @@
+package com.music.aha.model;
+
+import java.time.LocalDate;
+
+/**
+ * Recognitions in one day or week starting at {@code start}: how many there were, how many of them
+ * were the first recognition of a song, and how many were repeats of a song heard before.
+ */
+public record ListeningPeriod(LocalDate start, long recognitions, long newSongs, long repeats) {
+}
@@ -0,0 +1,8 @@
+package com.music.aha.model;
+
+/**
+ * All-time recognition counts. {@code newRatio} is the share of recognitions that were a song's
+ * first, so {@code 1 - newRatio} of all listening went to songs heard before.
+ */
+public record ListeningTotals(long recognitions, long songs, double newRatio) {
+}
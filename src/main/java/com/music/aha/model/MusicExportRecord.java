@@ -0,0 +1,13 @@
+package com.music.aha.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read-only view of a whole {@link AhaMusic} row for the NDJSON export. Selected by a JPQL
+ * constructor expression like {@link MusicSummary}, but keeps every column the entity serialises,
+ * so export consumers see the same objects as before the projection was introduced.
+ */
+public record MusicExportRecord(String acrId, String title, String artists, UUID songKey, LocalDateTime time,
+                                String sourceUrl, String detailUrl, boolean addedToPlaylist) {
+}
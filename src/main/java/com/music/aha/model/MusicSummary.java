@@ -0,0 +1,11 @@
+package com.music.aha.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of an {@link AhaMusic} row with the columns the listing endpoints show. Selected
+ * directly by JPQL constructor expressions, so no entity, snapshot or persistence-context entry is
+ * created per row. Serialises with the same property names as the entity.
+ */
+public record MusicSummary(String acrId, String title, String artists, LocalDateTime time, boolean addedToPlaylist) {
+}
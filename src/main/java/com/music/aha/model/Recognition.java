@@ -0,0 +1,49 @@
+package com.music.aha.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One recognition from an export, as kept in the append-only history. Rows are written in bulk
+ * by the import and never updated.
+ */
+@Entity
+@Table(name = "aha_music_history",
+       uniqueConstraints = @UniqueConstraint(name = "uk_aha_music_history_song_time",
+                                             columnNames = {"song_key", "time"}))
+public class Recognition {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String acrId;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(nullable = false)
+    private String artists;
+
+    @Column(name = "song_key", nullable = false)
+    private UUID songKey;
+
+    @Column(nullable = false)
+    private LocalDateTime time;
+
+    private String sourceUrl;
+    private String detailUrl;
+
+    @Column(nullable = false, insertable = false, updatable = false)
+    private LocalDateTime importedAt;
+
+    public Long getId() { return id; }
+    public String getAcrId() { return acrId; }
+    public String getTitle() { return title; }
+    public String getArtists() { return artists; }
+    public UUID getSongKey() { return songKey; }
+    public LocalDateTime getTime() { return time; }
+    public String getSourceUrl() { return sourceUrl; }
+    public String getDetailUrl() { return detailUrl; }
+    public LocalDateTime getImportedAt() { return importedAt; }
+}
@@ -0,0 +1,61 @@
+package com.music.aha.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * The identity of a song: an MD5 hash of its title and artists after folding case and whitespace,
+ * stored as a 16-byte {@code uuid} in the indexed {@code song_key} columns. Computed once when a
+ * record is ingested and used for every lookup, dedup and cache, so "Song  Title" and "song title"
+ * are the same song.
+ */
+public final class SongKey {
+
+    // Cannot appear in a folded value, so ("a b", "c") and ("a", "b c") never collide
+    private static final char SEPARATOR = '\u001F';
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    });
+
+    private SongKey() {}
+
+    public static UUID of(String title, String artists) {
+        String folded = normalize(title) + SEPARATOR + normalize(artists);
+        ByteBuffer hash = ByteBuffer.wrap(MD5.get().digest(folded.getBytes(StandardCharsets.UTF_8)));
+        return new UUID(hash.getLong(), hash.getLong());
+    }
+
+    /**
+     * Trims the value, collapses runs of whitespace (and control characters) to one space and
+     * lower-cases it.
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder folded = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c) || Character.isISOControl(c)) {
+                pendingSpace = folded.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                folded.append(' ');
+                pendingSpace = false;
+            }
+            folded.append(c);
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+}
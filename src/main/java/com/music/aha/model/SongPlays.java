@@ -0,0 +1,10 @@
+package com.music.aha.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * How often a song was recognised, with its first and latest recognition. Read from the
+ * {@code listening_song} rollup.
+ */
+public record SongPlays(String title, String artists, long plays, LocalDateTime firstTime, LocalDateTime lastTime) {
+}
@@ -1,31 +1,73 @@
 package com.music.aha.repository;
 
 import com.music.aha.model.AhaMusic;
+import com.music.aha.model.MusicExportRecord;
+import com.music.aha.model.MusicSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface AhaMusicRepository extends JpaRepository<AhaMusic, String> {
+public interface AhaMusicRepository extends JpaRepository<AhaMusic, String>, AhaMusicRepositoryCustom {
     
-    @Query("SELECT a FROM AhaMusic a WHERE (a.title, a.artists, a.time) IN " +
-           "(SELECT m.title, m.artists, MAX(m.time) FROM AhaMusic m GROUP BY m.title, m.artists)")
-    List<AhaMusic> findAllUniqueByTitleAndArtists();
+    // Listing projections: rows are read straight into records, bypassing the persistence context
+    @Query("SELECT new com.music.aha.model.MusicSummary(a.acrId, a.title, a.artists, a.time, a.addedToPlaylist) " +
+           "FROM AhaMusic a")
+    List<MusicSummary> findAllSummaries();
     
-    @Query("SELECT a FROM AhaMusic a WHERE (a.title, a.artists, a.time) IN " +
-           "(SELECT m.title, m.artists, MAX(m.time) FROM AhaMusic m GROUP BY m.title, m.artists)")
-    Page<AhaMusic> findAllUniqueByTitleAndArtists(Pageable pageable);
+    // aha_music holds only the latest recognition per song key (the full log is in
+    // aha_music_history), so the unique listing is a plain scan without a MAX-per-group aggregate
+    @Query(value = "SELECT new com.music.aha.model.MusicSummary(a.acrId, a.title, a.artists, a.time, a.addedToPlaylist) " +
+                   "FROM AhaMusic a",
+           countQuery = "SELECT COUNT(a) FROM AhaMusic a")
+    Page<MusicSummary> findUniqueSummaries(Pageable pageable);
     
-    @Query("SELECT COUNT(DISTINCT CONCAT(a.title, ':', a.artists)) FROM AhaMusic a")
-    long countUniqueTitleArtistPairs();
+    // Keyset pages of the songs not yet in a playlist, newest first. The literal "= false" (not a
+    // parameter) lets the planner match the partial index idx_aha_music_pending_time_acr_id
+    @Query("SELECT new com.music.aha.model.MusicSummary(a.acrId, a.title, a.artists, a.time, a.addedToPlaylist) " +
+           "FROM AhaMusic a WHERE a.addedToPlaylist = false AND a.time IS NOT NULL " +
+           "ORDER BY a.time DESC, a.acrId DESC")
+    Slice<MusicSummary> findNewestPending(Pageable pageable);
     
-    Optional<AhaMusic> findByTitleAndArtists(String title, String artists);
+    @Query("SELECT new com.music.aha.model.MusicSummary(a.acrId, a.title, a.artists, a.time, a.addedToPlaylist) " +
+           "FROM AhaMusic a WHERE a.addedToPlaylist = false AND a.time IS NOT NULL " +
+           "AND (a.time, a.acrId) < (:time, :acrId) ORDER BY a.time DESC, a.acrId DESC")
+    Slice<MusicSummary> findNewestPendingBefore(@Param("time") LocalDateTime time, @Param("acrId") String acrId,
+                                                Pageable pageable);
     
-    List<AhaMusic> findByTitleAndArtistsAndAddedToPlaylist(String title, String artists, boolean addedToPlaylist);
+    // Keyset pages, newest first; both walk idx_aha_music_time_acr_id and never run a count query
+    @Query("SELECT new com.music.aha.model.MusicSummary(a.acrId, a.title, a.artists, a.time, a.addedToPlaylist) " +
+           "FROM AhaMusic a WHERE a.time IS NOT NULL ORDER BY a.time DESC, a.acrId DESC")
+    Slice<MusicSummary> findNewest(Pageable pageable);
+
+    @Query("SELECT new com.music.aha.model.MusicSummary(a.acrId, a.title, a.artists, a.time, a.addedToPlaylist) " +
+           "FROM AhaMusic a WHERE a.time IS NOT NULL AND (a.time, a.acrId) < (:time, :acrId) " +
+           "ORDER BY a.time DESC, a.acrId DESC")
+    Slice<MusicSummary> findNewestBefore(@Param("time") LocalDateTime time, @Param("acrId") String acrId,
+                                         Pageable pageable);
+    
+    // Forward-only cursor for exports; must be consumed inside a transaction so the driver fetches in batches
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.music.aha.model.MusicExportRecord(a.acrId, a.title, a.artists, a.songKey, a.time, " +
+           "a.sourceUrl, a.detailUrl, a.addedToPlaylist) FROM AhaMusic a")
+    Stream<MusicExportRecord> streamAllForExport();
+    
+    // Lookups go through the unique song_key index; see SongKey
+    Optional<AhaMusic> findBySongKey(UUID songKey);
+    
+    List<AhaMusic> findBySongKeyAndAddedToPlaylist(UUID songKey, boolean addedToPlaylist);
     
     List<AhaMusic> findByAddedToPlaylist(boolean addedToPlaylist);
 } 
\ No newline at end of file
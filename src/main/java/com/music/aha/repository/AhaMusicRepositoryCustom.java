@@ -0,0 +1,97 @@
+package com.music.aha.repository;
+
+import com.music.aha.model.AhaMusic;
+import com.music.aha.model.MusicSummary;
+
+import java.io.OutputStream;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Set-based operations on {@code aha_music} and its history that bypass the persistence context.
+ */
+public interface AhaMusicRepositoryCustom {
+
+    /**
+     * Inserts each record, or updates the stored row with the same song key when the given record
+     * is more recent. All records are sent in a single statement.
+     * The records must not contain two entries for the same song key.
+     */
+    UpsertResult upsertLatest(Collection<AhaMusic> records);
+
+    /**
+     * Appends recognitions to the {@code aha_music_history} log in a single statement. Records
+     * without a time, and recognitions already in the log, are skipped. The listening rollups are
+     * updated with the added rows in the same statement.
+     *
+     * @return the number of rows added
+     */
+    int appendHistory(Collection<AhaMusic> records);
+
+    /**
+     * Creates the monthly {@code aha_music_history} partitions that the records' times fall into,
+     * if they do not exist yet. Must run before {@link #appendHistory}, and outside its
+     * transaction, so the new partitions are committed before concurrent appends use them.
+     * Months listed in {@code aha_music_history_archived_month} were detached on purpose and get
+     * no partition; records from them must be left out of the append.
+     *
+     * @return the archived months among the records' months
+     */
+    Set<YearMonth> ensureHistoryPartitions(Collection<AhaMusic> records);
+
+    /**
+     * Forgets which months {@link #ensureHistoryPartitions} has seen, so it checks them against the
+     * database again. Needed once a partition may have been detached while the application runs.
+     */
+    void forgetHistoryPartitions();
+
+    /**
+     * Sets {@code added_to_playlist} on the songs with the given keys in a single statement. Songs
+     * already marked are left untouched.
+     *
+     * @return the number of rows changed
+     */
+    int markAddedToPlaylist(Collection<UUID> songKeys);
+
+    /**
+     * Writes the library ({@code aha_music}), or every recognition if {@code history}, to {@code out}
+     * in the aha-music-export CSV layout with a header line, using PostgreSQL's {@code COPY ... TO
+     * STDOUT}. Rows go from the server to {@code out} as they are produced, without being mapped
+     * to objects. Rows without a time are skipped.
+     *
+     * @return the number of rows written
+     */
+    long copyOutCsv(OutputStream out, boolean history);
+
+    /**
+     * True if the pg_trgm extension is installed, so {@link #searchTrigram} can be used.
+     */
+    boolean isTrigramSearchAvailable();
+
+    /**
+     * Songs whose title or artists contain {@code query} or resemble it (pg_trgm word similarity),
+     * best match first, then newest first. Served by the trigram GIN indexes.
+     */
+    List<MusicSummary> searchTrigram(String query, int offset, int limit);
+
+    class UpsertResult {
+        private final int inserted;
+        private final int updated;
+
+        public UpsertResult(int inserted, int updated) {
+            this.inserted = inserted;
+            this.updated = updated;
+        }
+
+        public int getInserted() {
+            return inserted;
+        }
+
+        public int getUpdated() {
+            return updated;
+        }
+    }
+}
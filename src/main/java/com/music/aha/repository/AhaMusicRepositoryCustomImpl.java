@@ -0,0 +1,298 @@
+package com.music.aha.repository;
+
+import com.music.aha.model.AhaMusic;
+import com.music.aha.model.MusicSummary;
+import com.music.aha.model.SongKey;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class AhaMusicRepositoryCustomImpl implements AhaMusicRepositoryCustom {
+
+    // Rows are passed as parallel arrays so a whole chunk is one statement and one round-trip.
+    // xmax is 0 only for freshly inserted tuples, which tells inserts and updates apart.
+    private static final String UPSERT_LATEST_SQL =
+            "INSERT INTO aha_music (acr_id, title, artists, time, source_url, detail_url, song_key, added_to_playlist) " +
+            "SELECT u.acr_id, u.title, u.artists, u.time, u.source_url, u.detail_url, u.song_key, false " +
+            "FROM unnest(?::text[], ?::text[], ?::text[], ?::timestamp[], ?::text[], ?::text[], ?::uuid[]) " +
+            "AS u(acr_id, title, artists, time, source_url, detail_url, song_key) " +
+            "ON CONFLICT (song_key) DO UPDATE SET " +
+            "acr_id = EXCLUDED.acr_id, title = EXCLUDED.title, artists = EXCLUDED.artists, time = EXCLUDED.time, " +
+            "source_url = EXCLUDED.source_url, detail_url = EXCLUDED.detail_url " +
+            "WHERE EXCLUDED.time > aha_music.time " +
+            "RETURNING (xmax = 0) AS inserted";
+
+    // Appends the recognitions and folds the ones actually added into the listening rollups (V11),
+    // all in one statement. Each rollup is upserted in key order so concurrent appends lock rows in
+    // the same order. A song's first recognition moves when an older export is imported after a newer
+    // one; previous_first_time then moves its "new song" count from the old day to the new one.
+    // Artist keys are folded in Java (SongKey.normalize) and bound as a second pair of arrays, one
+    // entry per distinct artists string, since RETURNING only yields columns of the history itself.
+    private static final String APPEND_HISTORY_SQL =
+            "WITH appended AS (" +
+            "INSERT INTO aha_music_history (acr_id, title, artists, time, source_url, detail_url, song_key) " +
+            "SELECT u.acr_id, u.title, u.artists, u.time, u.source_url, u.detail_url, u.song_key " +
+            "FROM unnest(?::text[], ?::text[], ?::text[], ?::timestamp[], ?::text[], ?::text[], ?::uuid[]) " +
+            "AS u(acr_id, title, artists, time, source_url, detail_url, song_key) " +
+            "WHERE u.time IS NOT NULL " +
+            "ON CONFLICT (song_key, time) DO NOTHING " +
+            "RETURNING song_key, title, artists, time), " +
+            "songs AS (" +
+            "INSERT INTO listening_song (song_key, title, artists, plays, first_time, last_time) " +
+            "SELECT song_key, (array_agg(title ORDER BY time DESC))[1], (array_agg(artists ORDER BY time DESC))[1], " +
+            "count(*), min(time), max(time) FROM appended GROUP BY song_key ORDER BY song_key " +
+            "ON CONFLICT (song_key) DO UPDATE SET " +
+            "plays = listening_song.plays + EXCLUDED.plays, " +
+            "previous_first_time = listening_song.first_time, " +
+            "first_time = LEAST(listening_song.first_time, EXCLUDED.first_time), " +
+            "title = CASE WHEN EXCLUDED.last_time > listening_song.last_time THEN EXCLUDED.title ELSE listening_song.title END, " +
+            "artists = CASE WHEN EXCLUDED.last_time > listening_song.last_time THEN EXCLUDED.artists ELSE listening_song.artists END, " +
+            "last_time = GREATEST(listening_song.last_time, EXCLUDED.last_time) " +
+            "RETURNING first_time, previous_first_time), " +
+            "artist_keys AS (SELECT * FROM unnest(?::text[], ?::text[]) AS k(artists, artist_key)), " +
+            "artist_plays AS (" +
+            "INSERT INTO listening_artist (artist_key, artists, plays, last_time) " +
+            "SELECT k.artist_key, (array_agg(a.artists ORDER BY a.time DESC))[1], count(*), max(a.time) " +
+            "FROM appended a JOIN artist_keys k ON k.artists = a.artists GROUP BY 1 ORDER BY 1 " +
+            "ON CONFLICT (artist_key) DO UPDATE SET " +
+            "plays = listening_artist.plays + EXCLUDED.plays, " +
+            "artists = CASE WHEN EXCLUDED.last_time > listening_artist.last_time THEN EXCLUDED.artists ELSE listening_artist.artists END, " +
+            "last_time = GREATEST(listening_artist.last_time, EXCLUDED.last_time)), " +
+            "day_deltas AS (" +
+            "SELECT time::date AS day, 1 AS recognitions, 0 AS new_songs FROM appended " +
+            "UNION ALL SELECT first_time::date, 0, 1 FROM songs " +
+            "WHERE previous_first_time IS NULL OR first_time < previous_first_time " +
+            "UNION ALL SELECT previous_first_time::date, 0, -1 FROM songs WHERE first_time < previous_first_time), " +
+            "days AS (" +
+            "INSERT INTO listening_daily (day, recognitions, new_songs) " +
+            "SELECT day, sum(recognitions), sum(new_songs) FROM day_deltas GROUP BY day ORDER BY day " +
+            "ON CONFLICT (day) DO UPDATE SET " +
+            "recognitions = listening_daily.recognitions + EXCLUDED.recognitions, " +
+            "new_songs = listening_daily.new_songs + EXCLUDED.new_songs) " +
+            "SELECT count(*) FROM appended";
+
+    // One statement for any number of songs; rows already marked are skipped so they are not rewritten
+    private static final String MARK_ADDED_TO_PLAYLIST_SQL =
+            "UPDATE aha_music SET added_to_playlist = true " +
+            "WHERE song_key = ANY (?::uuid[]) AND added_to_playlist = false";
+
+    // word_similarity scores how well the query matches the best part of each column; <% and ILIKE
+    // both use the trigram GIN indexes. Substring hits rank first.
+    private static final String SEARCH_TRIGRAM_SQL =
+            "SELECT acr_id, title, artists, time, added_to_playlist FROM (" +
+            "SELECT *, GREATEST(word_similarity(?, title), word_similarity(?, artists)) " +
+            "+ CASE WHEN title ILIKE ? OR artists ILIKE ? THEN 1 ELSE 0 END AS score " +
+            "FROM aha_music " +
+            "WHERE title ILIKE ? OR artists ILIKE ? OR ? <% title OR ? <% artists) matches " +
+            "ORDER BY score DESC, time DESC NULLS LAST, acr_id " +
+            "OFFSET ? LIMIT ?";
+
+    private static final String ARCHIVED_HISTORY_MONTHS_SQL =
+            "SELECT month FROM aha_music_history_archived_month";
+
+    // Columns in AhaMusicCsv order, with the time formatted the way CsvReader reads it back. Rows
+    // without a time are left out: an empty time field is rejected as malformed on import.
+    private static final String COPY_OUT_CSV_SQL =
+            "COPY (SELECT acr_id, title, artists, to_char(time, 'YYYY-MM-DD HH24:MI:SS') AS time, " +
+            "source_url, detail_url FROM %s WHERE time IS NOT NULL) TO STDOUT WITH (FORMAT csv, HEADER)";
+
+    private final JdbcTemplate jdbcTemplate;
+    // Months known to have a history partition, so appends do not repeat the DDL
+    private final Set<YearMonth> historyPartitions = ConcurrentHashMap.newKeySet();
+
+    public AhaMusicRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public UpsertResult upsertLatest(Collection<AhaMusic> records) {
+        if (records.isEmpty()) {
+            return new UpsertResult(0, 0);
+        }
+
+        List<Boolean> outcomes = jdbcTemplate.query(con -> prepareWithColumns(con, UPSERT_LATEST_SQL, records),
+                (rs, rowNum) -> rs.getBoolean("inserted"));
+
+        int inserted = 0;
+        for (Boolean outcome : outcomes) {
+            if (outcome) {
+                inserted++;
+            }
+        }
+        return new UpsertResult(inserted, outcomes.size() - inserted);
+    }
+
+    @Override
+    public int appendHistory(Collection<AhaMusic> records) {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        Integer appended = jdbcTemplate.query(con -> {
+                    PreparedStatement ps = prepareWithColumns(con, APPEND_HISTORY_SQL, records);
+                    Map<String, String> artistKeys = artistKeys(records);
+                    ps.setArray(8, con.createArrayOf("text", artistKeys.keySet().toArray(new String[0])));
+                    ps.setArray(9, con.createArrayOf("text", artistKeys.values().toArray(new String[0])));
+                    return ps;
+                },
+                rs -> rs.next() ? rs.getInt(1) : 0);
+        return appended != null ? appended : 0;
+    }
+
+    @Override
+    public Set<YearMonth> ensureHistoryPartitions(Collection<AhaMusic> records) {
+        Set<YearMonth> missing = new TreeSet<>();
+        for (AhaMusic music : records) {
+            if (music.getTime() != null) {
+                YearMonth month = YearMonth.from(music.getTime());
+                if (!historyPartitions.contains(month)) {
+                    missing.add(month);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return Set.of();
+        }
+        // Not cached: an archived month only costs this lookup, and one taken out of the archive
+        // again is noticed at once
+        Set<YearMonth> archived = new HashSet<>(jdbcTemplate.query(ARCHIVED_HISTORY_MONTHS_SQL,
+                (rs, rowNum) -> YearMonth.from(rs.getObject(1, LocalDate.class))));
+        archived.retainAll(missing);
+        missing.removeAll(archived);
+        // Parallel imports append from several threads; concurrent CREATE TABLE IF NOT EXISTS can still collide
+        synchronized (historyPartitions) {
+            for (YearMonth month : missing) {
+                if (!historyPartitions.contains(month)) {
+                    jdbcTemplate.execute(HistoryPartitions.createSql(month));
+                    historyPartitions.add(month);
+                }
+            }
+        }
+        return archived;
+    }
+
+    @Override
+    public void forgetHistoryPartitions() {
+        historyPartitions.clear();
+    }
+
+    // The listening_artist key of every distinct artists string among the records
+    static Map<String, String> artistKeys(Collection<AhaMusic> records) {
+        Map<String, String> keys = new LinkedHashMap<>();
+        for (AhaMusic music : records) {
+            if (music.getArtists() != null) {
+                keys.computeIfAbsent(music.getArtists(), SongKey::normalize);
+            }
+        }
+        return keys;
+    }
+
+    // Binds the records as one array parameter per CSV column, in column order, then the song keys
+    private static PreparedStatement prepareWithColumns(Connection con, String sql, Collection<AhaMusic> records)
+            throws SQLException {
+        int size = records.size();
+        String[] acrIds = new String[size];
+        String[] titles = new String[size];
+        String[] artists = new String[size];
+        Timestamp[] times = new Timestamp[size];
+        String[] sourceUrls = new String[size];
+        String[] detailUrls = new String[size];
+        UUID[] songKeys = new UUID[size];
+        int i = 0;
+        for (AhaMusic music : records) {
+            acrIds[i] = music.getAcrId();
+            titles[i] = music.getTitle();
+            artists[i] = music.getArtists();
+            times[i] = music.getTime() != null ? Timestamp.valueOf(music.getTime()) : null;
+            sourceUrls[i] = music.getSourceUrl();
+            detailUrls[i] = music.getDetailUrl();
+            songKeys[i] = music.getSongKey() != null ? music.getSongKey() : SongKey.of(music.getTitle(), music.getArtists());
+            i++;
+        }
+
+        PreparedStatement ps = con.prepareStatement(sql);
+        Array[] arrays = {
+                con.createArrayOf("text", acrIds),
+                con.createArrayOf("text", titles),
+                con.createArrayOf("text", artists),
+                con.createArrayOf("timestamp", times),
+                con.createArrayOf("text", sourceUrls),
+                con.createArrayOf("text", detailUrls),
+                con.createArrayOf("uuid", songKeys)
+        };
+        for (int p = 0; p < arrays.length; p++) {
+            ps.setArray(p + 1, arrays[p]);
+        }
+        return ps;
+    }
+
+    @Override
+    public int markAddedToPlaylist(Collection<UUID> songKeys) {
+        if (songKeys.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(MARK_ADDED_TO_PLAYLIST_SQL);
+            ps.setArray(1, con.createArrayOf("uuid", songKeys.toArray()));
+            return ps;
+        });
+    }
+
+    @Override
+    public long copyOutCsv(OutputStream out, boolean history) {
+        String sql = String.format(COPY_OUT_CSV_SQL, history ? "aha_music_history" : "aha_music");
+        Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows != null ? rows : 0;
+    }
+
+    @Override
+    public boolean isTrigramSearchAvailable() {
+        Boolean available = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm')", Boolean.class);
+        return Boolean.TRUE.equals(available);
+    }
+
+    @Override
+    public List<MusicSummary> searchTrigram(String query, int offset, int limit) {
+        String pattern = "%" + escapeLike(query) + "%";
+        return jdbcTemplate.query(SEARCH_TRIGRAM_SQL,
+                (rs, rowNum) -> new MusicSummary(
+                        rs.getString("acr_id"),
+                        rs.getString("title"),
+                        rs.getString("artists"),
+                        rs.getObject("time", LocalDateTime.class),
+                        rs.getBoolean("added_to_playlist")),
+                query, query, pattern, pattern, pattern, pattern, query, query, offset, limit);
+    }
+
+    // ILIKE treats % and _ as wildcards and \ as the escape character
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,45 @@
+package com.music.aha.repository;
+
+import java.sql.SQLException;
+import java.time.YearMonth;
+
+/**
+ * Naming and DDL of the monthly partitions of {@code aha_music_history}, which is range-partitioned
+ * on {@code time}. The import adds a partition the first time it appends a recognition from a new
+ * month, named and bounded like the ones the partitioning migration (V10) created.
+ */
+public final class HistoryPartitions {
+
+    public static final String TABLE = "aha_music_history";
+
+    // check_violation, raised when a row's time falls outside every attached partition
+    private static final String CHECK_VIOLATION = "23514";
+
+    private HistoryPartitions() {}
+
+    /**
+     * The partition holding {@code month}, e.g. {@code aha_music_history_2024_01}.
+     */
+    public static String name(YearMonth month) {
+        return String.format("%s_%04d_%02d", TABLE, month.getYear(), month.getMonthValue());
+    }
+
+    public static String createSql(YearMonth month) {
+        return "CREATE TABLE IF NOT EXISTS " + name(month) + " PARTITION OF " + TABLE +
+               " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+    }
+
+    /**
+     * Whether {@code e} was caused by a row whose month has no attached partition, e.g. because it
+     * was detached after the application had created it.
+     */
+    public static boolean isMissingPartition(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && CHECK_VIOLATION.equals(sql.getSQLState())
+                    && String.valueOf(sql.getMessage()).contains("no partition of relation")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,7 @@
+package com.music.aha.repository;
+
+import com.music.aha.model.ImportWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ImportWatermarkRepository extends JpaRepository<ImportWatermark, String> {
+}
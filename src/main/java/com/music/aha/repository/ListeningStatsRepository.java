@@ -0,0 +1,80 @@
+package com.music.aha.repository;
+
+import com.music.aha.model.ArtistPlays;
+import com.music.aha.model.ListeningPeriod;
+import com.music.aha.model.ListeningTotals;
+import com.music.aha.model.SongPlays;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Reads the listening rollups ({@code listening_song}, {@code listening_artist},
+ * {@code listening_daily}), which {@link AhaMusicRepositoryCustom#appendHistory} keeps up to date.
+ * Top lists walk the plays indexes and period counts read at most one row per day, so no query
+ * depends on the size of the library or the history.
+ */
+@Repository
+public class ListeningStatsRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ListeningStatsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<SongPlays> findTopSongs(int limit) {
+        return jdbcTemplate.query(
+                "SELECT title, artists, plays, first_time, last_time FROM listening_song " +
+                "ORDER BY plays DESC, last_time DESC LIMIT ?",
+                (rs, rowNum) -> new SongPlays(
+                        rs.getString("title"),
+                        rs.getString("artists"),
+                        rs.getLong("plays"),
+                        rs.getObject("first_time", LocalDateTime.class),
+                        rs.getObject("last_time", LocalDateTime.class)),
+                limit);
+    }
+
+    public List<ArtistPlays> findTopArtists(int limit) {
+        return jdbcTemplate.query(
+                "SELECT artists, plays, last_time FROM listening_artist ORDER BY plays DESC, last_time DESC LIMIT ?",
+                (rs, rowNum) -> new ArtistPlays(
+                        rs.getString("artists"),
+                        rs.getLong("plays"),
+                        rs.getObject("last_time", LocalDateTime.class)),
+                limit);
+    }
+
+    /**
+     * Counts per day, or per ISO week (starting Monday) if {@code weekly}, for days in
+     * [{@code from}, {@code to}), oldest first. Periods without recognitions are left out.
+     */
+    public List<ListeningPeriod> findPeriods(LocalDate from, LocalDate to, boolean weekly) {
+        String period = weekly ? "date_trunc('week', day)::date" : "day";
+        return jdbcTemplate.query(
+                "SELECT " + period + " AS start, sum(recognitions) AS recognitions, sum(new_songs) AS new_songs " +
+                "FROM listening_daily WHERE day >= ? AND day < ? GROUP BY 1 ORDER BY 1",
+                (rs, rowNum) -> {
+                    long recognitions = rs.getLong("recognitions");
+                    long newSongs = rs.getLong("new_songs");
+                    return new ListeningPeriod(rs.getObject("start", LocalDate.class), recognitions, newSongs,
+                            recognitions - newSongs);
+                },
+                from, to);
+    }
+
+    public ListeningTotals findTotals() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COALESCE(sum(recognitions), 0) AS recognitions, COALESCE(sum(new_songs), 0) AS songs " +
+                "FROM listening_daily",
+                (rs, rowNum) -> {
+                    long recognitions = rs.getLong("recognitions");
+                    long songs = rs.getLong("songs");
+                    return new ListeningTotals(recognitions, songs, recognitions > 0 ? (double) songs / recognitions : 0);
+                });
+    }
+}
@@ -0,0 +1,30 @@
+package com.music.aha.repository;
+
+import com.music.aha.model.Recognition;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads the recognition history. Writes go through {@link AhaMusicRepositoryCustom#appendHistory}.
+ */
+public interface RecognitionRepository extends JpaRepository<Recognition, Long> {
+
+    List<Recognition> findBySongKeyOrderByTimeDesc(UUID songKey);
+
+    // Keyset pages of [from, to), newest first. The time bounds prune the scan to the monthly
+    // partitions they overlap, and idx_aha_music_history_time_id serves the order within each
+    @Query("SELECT r FROM Recognition r WHERE r.time >= :from AND r.time < :to ORDER BY r.time DESC, r.id DESC")
+    Slice<Recognition> findInRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to, Pageable pageable);
+
+    @Query("SELECT r FROM Recognition r WHERE r.time >= :from AND r.time < :to " +
+           "AND (r.time, r.id) < (:time, :id) ORDER BY r.time DESC, r.id DESC")
+    Slice<Recognition> findInRangeBefore(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                         @Param("time") LocalDateTime time, @Param("id") Long id, Pageable pageable);
+}
@@ -1,197 +1,695 @@
 package com.music.aha.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.music.aha.csv.AhaMusicCsv;
+import com.music.aha.csv.CsvFileSegmenter;
+import com.music.aha.csv.CsvReader;
+import com.music.aha.csv.FileRangeInputStream;
 import com.music.aha.model.AhaMusic;
+import com.music.aha.model.ImportWatermark;
+import com.music.aha.model.MusicExportRecord;
+import com.music.aha.model.MusicSummary;
+import com.music.aha.model.Recognition;
+import com.music.aha.model.SongKey;
 import com.music.aha.repository.AhaMusicRepository;
+import com.music.aha.repository.AhaMusicRepositoryCustom.UpsertResult;
+import com.music.aha.repository.HistoryPartitions;
+import com.music.aha.repository.ImportWatermarkRepository;
+import com.music.aha.repository.RecognitionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.YearMonth;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import java.io.File;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Service
 public class AhaMusicService {
 
+    // Watermark key for imports from the configured import directory
+    private static final String DIRECTORY_SOURCE = "directory";
+    // Matches the export cursor's fetch size, so each flush sends one fetched batch
+    private static final int EXPORT_FLUSH_ROWS = 1000;
+
     @Autowired
     private AhaMusicRepository repository;
 
-    // Utility to find the latest matching CSV file in E:\\Downloads
-    public static File getLatestAhaMusicCsv() {
-        File downloadsDir = new File("E:\\Downloads");
-        File[] csvFiles = downloadsDir.listFiles((dir, name) -> name.startsWith("aha-music-export") && name.endsWith(".csv"));
+    @Autowired
+    private ImportWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private RecognitionRepository recognitionRepository;
+
+    @Autowired
+    private SongCache songCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${aha.import.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${aha.import.directory:E:\\Downloads}")
+    private String importDirectory;
+
+    @Value("${aha.import.parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int parallelism;
+
+    public File getImportDirectory() {
+        return new File(importDirectory);
+    }
+
+    // Utility to find the latest matching CSV file in the import directory
+    public File getLatestAhaMusicCsv() {
+        List<File> csvFiles = getAllAhaMusicCsvs();
+        return csvFiles.isEmpty() ? null : csvFiles.get(csvFiles.size() - 1);
+    }
+
+    /**
+     * Every aha-music-export_YYYY-MM-DD export in the import directory, oldest first. Exports may be
+     * plain {@code .csv} or archived as {@code .csv.gz} / {@code .zip}; when a date exists in several
+     * forms the plain CSV is used.
+     */
+    public List<File> getAllAhaMusicCsvs() {
+        File downloadsDir = getImportDirectory();
+        File[] csvFiles = downloadsDir.listFiles((dir, name) -> AhaMusicCsv.exportDate(name) != null);
 
         if (csvFiles == null || csvFiles.length == 0) {
-            return null;
+            return new ArrayList<>();
         }
-        Pattern datePattern = Pattern.compile("aha-music-export_(\\d{4}-\\d{2}-\\d{2})\\.csv");
-        File latestFile = null;
-        String maxDate = "";
+        TreeMap<String, File> filesByDate = new TreeMap<>();
 
         for (File file : csvFiles) {
-            Matcher matcher = datePattern.matcher(file.getName());
-            if (matcher.matches()) {
-                String datePart = matcher.group(1); // yyyy-mm-dd
-                if (datePart.compareTo(maxDate) > 0) {
-                    maxDate = datePart;
-                    latestFile = file;
-                }
+            String datePart = AhaMusicCsv.exportDate(file.getName()); // yyyy-mm-dd
+            File existing = filesByDate.get(datePart);
+            if (existing == null || AhaMusicCsv.isCompressed(existing.toPath())) {
+                filesByDate.put(datePart, file);
             }
         }
-        return latestFile;
+        return new ArrayList<>(filesByDate.values());
+    }
+
+    /**
+     * Imports an export file in the given mode, reporting into {@code report} as it goes.
+     * The report is also polled for cancellation between chunks. For a dry run the import goes
+     * through the same upserts but is rolled back, so the report shows what would have changed.
+     */
+    public void importCsvFile(File file, ImportMode mode, ImportReport report) throws IOException {
+        try {
+            runImport(report, () -> {
+                switch (mode) {
+                    case INCREMENTAL -> importCsvFileIncremental(file, report);
+                    case PARALLEL, BACKFILL -> importCsvFilesParallel(List.of(file), report);
+                    default -> importCsvFileFull(file, report);
+                }
+            });
+        } finally {
+            report.finish();
+        }
     }
 
-    @Transactional
     public void importCsvFile(String filePath) throws IOException {
-        Map<String, AhaMusic> uniqueRecords = new HashMap<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        importCsvFile(new File(filePath), ImportMode.FULL, new ImportReport());
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+    /**
+     * Streams the CSV export and merges it into the database in chunks of {@code aha.import.chunk-size}
+     * unique records. Each chunk is committed in its own transaction, so heap use stays bounded by the
+     * chunk size and a failure only rolls back the chunk it happened in.
+     */
+    private void importCsvFileFull(File file, ImportReport report) throws IOException {
+        try (CsvReader csv = new CsvReader(new InputStreamReader(AhaMusicCsv.openStream(file.toPath()), StandardCharsets.UTF_8))) {
             // Skip the header line
-            String line = br.readLine();
-            
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
-                
-                if (values.length >= 6) {
-                    String title = values[1].replace("\"", "");
-                    String artists = values[2].replace("\"", "");
-                    String uniqueKey = title + "|" + artists;
-                    LocalDateTime currentTime = LocalDateTime.parse(values[3], formatter);
-
-                    // Only keep the most recent occurrence of a title-artist combination
-                    if (!uniqueRecords.containsKey(uniqueKey) || 
-                        currentTime.isAfter(uniqueRecords.get(uniqueKey).getTime())) {
-                        
-                        AhaMusic music = new AhaMusic();
-                        music.setAcrId(values[0]);
-                        music.setTitle(title);
-                        music.setArtists(artists);
-                        music.setTime(currentTime);
-                        music.setSourceUrl(values[4]);
-                        music.setDetailUrl(values[5]);
-                        
-                        uniqueRecords.put(uniqueKey, music);
-                    }
+            csv.next();
+            importRecords(csv, null, report);
+        }
+    }
+
+    /**
+     * Imports an export streamed by a client. Rows are parsed as they arrive and merged chunk by
+     * chunk as in a full import, so memory stays constant however large the upload is. The file name
+     * only selects decompression ({@code .csv.gz}, {@code .zip}); the watermark is not touched.
+     */
+    public void importCsvStream(InputStream in, String fileName, ImportReport report) throws IOException {
+        try {
+            runImport(report, () -> {
+                try (CsvReader csv = new CsvReader(new InputStreamReader(AhaMusicCsv.decompress(in, fileName), StandardCharsets.UTF_8))) {
+                    // Skip the header line
+                    csv.next();
+                    importRecords(csv, null, report);
+                }
+            });
+        } finally {
+            report.finish();
+        }
+    }
+
+    /**
+     * Backfills from several export files at once: all files are parsed concurrently on
+     * {@code aha.import.parallelism} threads, reduced to a single latest record per song and merged in
+     * one pass, so a song that appears in many files is written once. Files should be ordered
+     * oldest first; on equal times the earlier file wins, as with importing them one by one.
+     */
+    public void importCsvFiles(List<File> files, ImportReport report) throws IOException {
+        try {
+            runImport(report, () -> importCsvFilesParallel(files, report));
+        } finally {
+            report.finish();
+        }
+    }
+
+    /**
+     * Runs an import directly, or for a dry run inside one outer transaction that is always rolled
+     * back. The chunk transactions (and the watermark update) join it, so later chunks still see
+     * the rows of earlier ones and the counts match a real run.
+     */
+    private void runImport(ImportReport report, ImportWork work) throws IOException {
+        if (!report.isDryRun()) {
+            work.run();
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                try {
+                    work.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private interface ImportWork {
+        void run() throws IOException;
+    }
+
+    /**
+     * Parses the exports from memory-mapped files on {@code aha.import.parallelism} threads, appending
+     * every row to the history as it goes, then merges the latest record per song in chunks. The end state is the same as a full import of
+     * each file in turn; memory grows with the number of distinct songs rather than rows.
+     */
+    private void importCsvFilesParallel(List<File> files, ImportReport report) throws IOException {
+        List<Path> paths = new ArrayList<>(files.size());
+        for (File file : files) {
+            paths.add(file.toPath());
+        }
+        LongAdder rowsParsed = new LongAdder();
+        LongAdder malformed = new LongAdder();
+        // Dry runs leave the history alone: the appends would run on the parsing threads, outside the
+        // transaction that is rolled back
+        Consumer<List<AhaMusic>> history = report.isDryRun() ? null : batch -> {
+            report.checkCancelled();
+            report.addHistoryAppended(withHistoryPartitions(batch, report,
+                    appendable -> transactionTemplate.execute(status -> repository.appendHistory(appendable))));
+        };
+        Map<UUID, AhaMusic> latest = AhaMusicCsv.parseLatest(paths, parallelism, rowsParsed, malformed,
+                history, chunkSize);
+
+        // Malformed rows and rows superseded by a newer row for the same song never reach a chunk
+        long superseded = rowsParsed.sum() - malformed.sum() - latest.size();
+        report.addRowsParsed(superseded + malformed.sum());
+        report.addSkippedOlder(superseded);
+        report.addMalformed(malformed.sum());
+
+        List<AhaMusic> chunk = new ArrayList<>(Math.min(chunkSize, latest.size()));
+        for (AhaMusic music : latest.values()) {
+            chunk.add(music);
+            if (chunk.size() >= chunkSize) {
+                mergeLatest(chunk, report);
+                chunk.clear();
             }
         }
+        if (!chunk.isEmpty()) {
+            mergeLatest(chunk, report);
+        }
+    }
 
-        // Check existing records in database and merge with CSV records
-        List<AhaMusic> recordsToSave = new ArrayList<>();
-        for (AhaMusic csvRecord : uniqueRecords.values()) {
-            Optional<AhaMusic> existingRecord = repository.findByTitleAndArtists(
-                csvRecord.getTitle(), csvRecord.getArtists());
-            
-            if (existingRecord.isPresent()) {
-                // Record exists - update if CSV record is more recent
-                AhaMusic existing = existingRecord.get();
-                if (csvRecord.getTime().isAfter(existing.getTime())) {
-                    // Update existing record with new data
-                    existing.setAcrId(csvRecord.getAcrId());
-                    existing.setTime(csvRecord.getTime());
-                    existing.setSourceUrl(csvRecord.getSourceUrl());
-                    existing.setDetailUrl(csvRecord.getDetailUrl());
-                    recordsToSave.add(existing);
+    /**
+     * Imports only what is new since the last incremental run, as recorded in the import watermark.
+     * <ul>
+     *   <li>Same file as last time: resumes at the stored byte offset, so an unchanged file costs a
+     *       single watermark lookup.</li>
+     *   <li>Different (or truncated) file: reads it from the start but skips rows older than the
+     *       latest recognition already imported.</li>
+     *   <li>Compressed file: cannot be resumed mid-stream, so an unchanged archive is skipped and a
+     *       changed one is read from the start, skipping rows older than the watermark.</li>
+     * </ul>
+     * The watermark is advanced only after every chunk has been committed, and only to the end of
+     * the last complete (line-terminated) record: a trailing line that is still being written is
+     * left for the next run instead of being counted as malformed and skipped.
+     */
+    private synchronized void importCsvFileIncremental(File file, ImportReport report) throws IOException {
+        // Read in a read-write transaction so it comes from the primary, never a lagging replica
+        ImportWatermark watermark = transactionTemplate.execute(status ->
+                watermarkRepository.findById(DIRECTORY_SOURCE).orElse(null));
+        long size = file.length();
+
+        boolean sameFile = watermark != null
+                && file.getName().equals(watermark.getFileName())
+                && size >= watermark.getByteOffset();
+        if (sameFile && size == watermark.getByteOffset()) {
+            return;
+        }
+        boolean compressed = AhaMusicCsv.isCompressed(file.toPath());
+        boolean resume = sameFile && !compressed;
+        long offset = resume ? watermark.getByteOffset() : 0;
+        LocalDateTime skipBefore = !resume && watermark != null ? watermark.getMaxTime() : null;
+
+        // A compressed file is only ever read whole, so its size just marks it as seen
+        long end = size;
+        LocalDateTime maxTime;
+        if (compressed) {
+            try (CsvReader csv = new CsvReader(new InputStreamReader(AhaMusicCsv.openStream(file.toPath()), StandardCharsets.UTF_8))) {
+                // Skip the header line
+                csv.next();
+                maxTime = importRecords(csv, skipBefore, report);
+            }
+        } else {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                end = CsvFileSegmenter.lastRecordEnd(channel, offset, size);
+                if (end == offset) {
+                    return;
+                }
+                try (CsvReader csv = new CsvReader(new InputStreamReader(
+                        new FileRangeInputStream(channel, offset, end), StandardCharsets.UTF_8))) {
+                    // Skip the header line
+                    if (offset == 0) {
+                        csv.next();
+                    }
+                    maxTime = importRecords(csv, skipBefore, report);
                 }
-                // If existing record is more recent, skip it
+            }
+        }
+
+        if (watermark == null) {
+            watermark = new ImportWatermark();
+            watermark.setSource(DIRECTORY_SOURCE);
+        }
+        if (maxTime != null && (watermark.getMaxTime() == null || maxTime.isAfter(watermark.getMaxTime()))) {
+            watermark.setMaxTime(maxTime);
+        }
+        watermark.setFileName(file.getName());
+        watermark.setByteOffset(end);
+        watermark.setUpdatedAt(LocalDateTime.now());
+        watermarkRepository.save(watermark);
+    }
+
+    /**
+     * Reads the remaining records, keeps the latest per song and merges them chunk by chunk.
+     * Rows older than {@code skipBefore} (if set) are counted as skipped without being merged.
+     *
+     * @return the most recent recognition time that was merged, or null if nothing was
+     */
+    private LocalDateTime importRecords(CsvReader csv, LocalDateTime skipBefore, ImportReport report) throws IOException {
+        Map<UUID, AhaMusic> uniqueRecords = new HashMap<>();
+        List<AhaMusic> history = new ArrayList<>();
+        LocalDateTime maxTime = null;
+        long skipped = 0;
+        long malformed = 0;
+
+        while (csv.next()) {
+            AhaMusic music = AhaMusicCsv.read(csv);
+            if (music == null) {
+                malformed++;
+            } else if (skipBefore != null && music.getTime().isBefore(skipBefore)) {
+                skipped++;
             } else {
-                // New record - add it
-                recordsToSave.add(csvRecord);
+                AhaMusicCsv.keepLatest(uniqueRecords, music);
+                history.add(music);
+            }
+
+            // Commit a full chunk and start a new one
+            if (history.size() >= chunkSize) {
+                maxTime = latestTime(uniqueRecords.values(), maxTime);
+                addSkipped(report, skipped, malformed);
+                mergeChunk(uniqueRecords.values(), history, report);
+                uniqueRecords.clear();
+                history.clear();
+                skipped = 0;
+                malformed = 0;
             }
         }
 
-        // Save only new or updated records
-        if (!recordsToSave.isEmpty()) {
-            repository.saveAll(recordsToSave);
-        }
-    }
-
-    @Transactional
-    public CleanupResult cleanupDuplicates() {
-        long beforeCount = repository.count();
-        
-        // Get all records from the database
-        List<AhaMusic> allRecords = repository.findAll();
-        
-        // Create a map to store the most recent record for each title-artist combination
-        Map<String, AhaMusic> uniqueRecords = new HashMap<>();
-        
-        // Process all records to keep only the most recent ones
-        for (AhaMusic music : allRecords) {
-            String key = music.getTitle() + "|" + music.getArtists();
-            if (!uniqueRecords.containsKey(key) || 
-                music.getTime().isAfter(uniqueRecords.get(key).getTime())) {
-                uniqueRecords.put(key, music);
+        addSkipped(report, skipped, malformed);
+        if (!history.isEmpty()) {
+            maxTime = latestTime(uniqueRecords.values(), maxTime);
+            mergeChunk(uniqueRecords.values(), history, report);
+        }
+        return maxTime;
+    }
+
+    private static void addSkipped(ImportReport report, long skippedOlder, long malformed) {
+        report.addRowsParsed(skippedOlder + malformed);
+        report.addSkippedOlder(skippedOlder);
+        report.addMalformed(malformed);
+    }
+
+    private static LocalDateTime latestTime(Collection<AhaMusic> records, LocalDateTime current) {
+        LocalDateTime latest = current;
+        for (AhaMusic music : records) {
+            if (latest == null || music.getTime().isAfter(latest)) {
+                latest = music.getTime();
             }
         }
-        
-        // Clear all records and save only the unique ones
-        repository.deleteAllInBatch();
-        repository.saveAll(uniqueRecords.values());
-        
-        long afterCount = repository.count();
-        return new CleanupResult(beforeCount, afterCount);
+        return latest;
     }
 
-    public long getUniqueRecordCount() {
-        return repository.countUniqueTitleArtistPairs();
+    /**
+     * Merges one chunk of CSV records in its own transaction: {@code history} (every well-formed
+     * row the chunk was reduced from) is appended to the recognition history, and {@code latest}
+     * is upserted against the unique song_key index, both as single set-based
+     * statements. Rows that were neither inserted nor updated were superseded, in the file or by
+     * the library. For a dry run the history is left alone.
+     */
+    private void mergeChunk(Collection<AhaMusic> latest, List<AhaMusic> history, ImportReport report) {
+        report.checkCancelled();
+        UpsertResult result;
+        if (report.isDryRun()) {
+            result = transactionTemplate.execute(status -> repository.upsertLatest(latest));
+        } else {
+            result = withHistoryPartitions(history, report, appendable -> transactionTemplate.execute(status -> {
+                report.addHistoryAppended(repository.appendHistory(appendable));
+                return repository.upsertLatest(latest);
+            }));
+        }
+        songCache.invalidateAll(latest);
+        addMerged(report, history.size(), result);
     }
 
-    public List<AhaMusic> getAllUniqueRecords() {
-        return repository.findAll();
+    /**
+     * Runs {@code append}, a transaction that appends the given records to the history, once their
+     * monthly partitions exist. Records from archived months (see
+     * {@code aha_music_history_archived_month}) are not passed on but counted in the report. The
+     * repository remembers the months it has created, so a month archived since then fails the
+     * append with no partition for its rows; the months are then checked again and the
+     * transaction retried once.
+     */
+    private <T> T withHistoryPartitions(List<AhaMusic> records, ImportReport report, Function<List<AhaMusic>, T> append) {
+        try {
+            return appendOutsideArchive(records, report, append);
+        } catch (DataAccessException e) {
+            if (!HistoryPartitions.isMissingPartition(e)) {
+                throw e;
+            }
+            repository.forgetHistoryPartitions();
+            return appendOutsideArchive(records, report, append);
+        }
     }
 
-    public Page<AhaMusic> getAllUniqueRecords(Pageable pageable) {
-        return repository.findAllUniqueByTitleAndArtists(pageable);
+    private <T> T appendOutsideArchive(List<AhaMusic> records, ImportReport report, Function<List<AhaMusic>, T> append) {
+        Set<YearMonth> archived = repository.ensureHistoryPartitions(records);
+        List<AhaMusic> appendable = records;
+        if (!archived.isEmpty()) {
+            appendable = new ArrayList<>(records.size());
+            for (AhaMusic music : records) {
+                if (music.getTime() == null || !archived.contains(YearMonth.from(music.getTime()))) {
+                    appendable.add(music);
+                }
+            }
+        }
+        T result = append.apply(appendable);
+        // Counted only once the append committed, so a retried chunk is not counted twice
+        report.addHistoryArchivedSkipped(records.size() - appendable.size());
+        return result;
     }
 
+    // Records in the parallel path reach the history separately, while they are being parsed
+    private void mergeLatest(Collection<AhaMusic> latest, ImportReport report) {
+        report.checkCancelled();
+        UpsertResult result = transactionTemplate.execute(status -> repository.upsertLatest(latest));
+        songCache.invalidateAll(latest);
+        addMerged(report, latest.size(), result);
+    }
+
+    private static void addMerged(ImportReport report, int rows, UpsertResult result) {
+        report.addRowsParsed(rows);
+        report.addInserted(result.getInserted());
+        report.addUpdated(result.getUpdated());
+        report.addSkippedOlder(rows - result.getInserted() - result.getUpdated());
+    }
+
+    /**
+     * Writes the whole library to {@code out} as newline-delimited JSON, one {@link MusicExportRecord}
+     * (every column of the record, source and detail URLs included) per line, while the rows are
+     * still being fetched. Rows are read through a forward-only cursor
+     * straight into records, so heap use does not grow with the library.
+     *
+     * @return the number of records written
+     */
+    public long exportAllAsNdjson(OutputStream out) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            long count = 0;
+            try (Stream<MusicExportRecord> records = repository.streamAllForExport();
+                 JsonGenerator json = objectMapper.getFactory().createGenerator(out)
+                         .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                // Lines are ended explicitly; the default separator would start every later one with a space
+                json.setRootValueSeparator(null);
+                Iterator<MusicExportRecord> it = records.iterator();
+                while (it.hasNext()) {
+                    writer.writeValue(json, it.next());
+                    json.writeRaw('\n');
+                    if (++count % EXPORT_FLUSH_ROWS == 0) {
+                        json.flush();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Writes the library, or the whole recognition history if {@code history}, to {@code out} as an
+     * aha-music-export CSV, streamed straight from the database with COPY. Importing the output
+     * again yields the same songs and recognitions. Songs without a recognition time, which the
+     * import would reject, are left out.
+     *
+     * @return the number of records written
+     */
+    @Transactional(readOnly = true)
+    public long exportCsv(OutputStream out, boolean history) {
+        return repository.copyOutCsv(out, history);
+    }
+
+    @Transactional(readOnly = true)
+    public List<MusicSummary> getAllSummaries() {
+        return repository.findAllSummaries();
+    }
+
+    @Transactional(readOnly = true)
+    public Page<MusicSummary> getUniqueSummaries(Pageable pageable) {
+        return repository.findUniqueSummaries(pageable);
+    }
+
+    /**
+     * One page of the library, newest first, starting after {@code cursor} (null for the first
+     * page). Pages are found by seeking the (time, acr_id) index to the cursor, so every page costs
+     * the same and no count query runs. Records without a time are not listed.
+     *
+     * @throws IllegalArgumentException if the cursor is not one returned by a previous page
+     */
+    @Transactional(readOnly = true)
+    public MusicSlice<MusicSummary> getMusicSlice(String cursor, int size) {
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<MusicSummary> slice;
+        if (cursor == null || cursor.isEmpty()) {
+            slice = repository.findNewest(pageable);
+        } else {
+            String[] key = decodeCursor(cursor);
+            slice = repository.findNewestBefore(LocalDateTime.parse(key[0]), key[1], pageable);
+        }
+
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            MusicSummary last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = encodeCursor(last.time(), last.acrId());
+        }
+        return new MusicSlice<>(slice.getContent(), nextCursor);
+    }
+
+    /**
+     * One page of the songs not yet added to a playlist, newest first, starting after
+     * {@code cursor} (null for the first page). Pages are read from a partial index that holds
+     * only these songs, so the cost follows the pending set rather than the library.
+     *
+     * @throws IllegalArgumentException if the cursor is not one returned by a previous page
+     */
+    @Transactional(readOnly = true)
+    public MusicSlice<MusicSummary> getAvailableForPlaylist(String cursor, int size) {
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<MusicSummary> slice;
+        if (cursor == null || cursor.isEmpty()) {
+            slice = repository.findNewestPending(pageable);
+        } else {
+            String[] key = decodeCursor(cursor);
+            slice = repository.findNewestPendingBefore(LocalDateTime.parse(key[0]), key[1], pageable);
+        }
+
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            MusicSummary last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = encodeCursor(last.time(), last.acrId());
+        }
+        return new MusicSlice<>(slice.getContent(), nextCursor);
+    }
+
+    // The cursor is the (time, acrId) of the last record of a page (for history, its id), base64url-encoded
+    private static String encodeCursor(LocalDateTime time, String acrId) {
+        String key = time + "|" + acrId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = key.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            String time = key.substring(0, separator);
+            LocalDateTime.parse(time);
+            return new String[] { time, key.substring(separator + 1) };
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    /**
+     * Every recognition of a song, newest first. Its size is the song's play count.
+     */
+    @Transactional(readOnly = true)
+    public List<Recognition> getHistory(String title, String artists) {
+        return recognitionRepository.findBySongKeyOrderByTimeDesc(SongKey.of(title, artists));
+    }
+
+    /**
+     * One page of the recognitions between {@code from} (inclusive) and {@code to} (exclusive),
+     * newest first, starting after {@code cursor} (null for the first page). Only the history's
+     * monthly partitions that overlap the range are read.
+     *
+     * @throws IllegalArgumentException if the cursor is not one returned by a previous page
+     */
+    @Transactional(readOnly = true)
+    public MusicSlice<Recognition> getRecognitions(LocalDateTime from, LocalDateTime to, String cursor, int size) {
+        Pageable pageable = PageRequest.of(0, size);
+        Slice<Recognition> slice;
+        if (cursor == null || cursor.isEmpty()) {
+            slice = recognitionRepository.findInRange(from, to, pageable);
+        } else {
+            String[] key = decodeCursor(cursor);
+            long id;
+            try {
+                id = Long.parseLong(key[1]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+            slice = recognitionRepository.findInRangeBefore(from, to, LocalDateTime.parse(key[0]), id, pageable);
+        }
+
+        String nextCursor = null;
+        if (slice.hasNext()) {
+            Recognition last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            nextCursor = encodeCursor(last.getTime(), String.valueOf(last.getId()));
+        }
+        return new MusicSlice<>(slice.getContent(), nextCursor);
+    }
+
+    @Transactional(readOnly = true)
     public List<AhaMusic> findByTitleAndArtistsAndAddedToPlaylist(String title, String artists, boolean addedToPlaylist) {
-        return repository.findByTitleAndArtistsAndAddedToPlaylist(title, artists, addedToPlaylist);
+        return repository.findBySongKeyAndAddedToPlaylist(SongKey.of(title, artists), addedToPlaylist);
     }
 
+    @Transactional(readOnly = true)
     public List<AhaMusic> findByAddedToPlaylist(boolean addedToPlaylist) {
         return repository.findByAddedToPlaylist(addedToPlaylist);
     }
 
+    /**
+     * Looks the song up through {@link SongCache}, so repeated lookups of the same song (as in
+     * playlist creation) do not go to the database.
+     */
     public Optional<AhaMusic> findByTitleAndArtists(String title, String artists) {
-        return repository.findByTitleAndArtists(title, artists);
+        // Misses are read from the primary: a lagging replica could put back a row that was just invalidated
+        return songCache.get(SongKey.of(title, artists),
+                songKey -> transactionTemplate.execute(status -> repository.findBySongKey(songKey)));
+    }
+
+    /**
+     * Marks the songs with the given keys as added to a playlist, with one UPDATE for all of them.
+     *
+     * @return the number of songs that were not marked before
+     */
+    public int markAddedToPlaylist(Collection<UUID> songKeys) {
+        int updated = transactionTemplate.execute(status -> repository.markAddedToPlaylist(songKeys));
+        for (UUID songKey : songKeys) {
+            songCache.invalidate(songKey);
+        }
+        return updated;
     }
 
-    public AhaMusic save(AhaMusic music) {
-        return repository.save(music);
+    public SongCache.Stats getSongCacheStats() {
+        return songCache.getStats();
     }
 
-    public static class CleanupResult {
-        private final long originalCount;
-        private final long newCount;
-        private final long removedDuplicates;
+    public static class MusicSlice<T> {
+        private final List<T> content;
+        private final String nextCursor;
 
-        public CleanupResult(long originalCount, long newCount) {
-            this.originalCount = originalCount;
-            this.newCount = newCount;
-            this.removedDuplicates = originalCount - newCount;
+        public MusicSlice(List<T> content, String nextCursor) {
+            this.content = content;
+            this.nextCursor = nextCursor;
         }
 
-        public long getOriginalCount() {
-            return originalCount;
+        public List<T> getContent() {
+            return content;
         }
 
-        public long getNewCount() {
-            return newCount;
+        /**
+         * Cursor for the following page, or null if this is the last one.
+         */
+        public String getNextCursor() {
+            return nextCursor;
         }
 
-        public long getRemovedDuplicates() {
-            return removedDuplicates;
+        public boolean isHasNext() {
+            return nextCursor != null;
         }
     }
-} 
\ No newline at end of file
+}
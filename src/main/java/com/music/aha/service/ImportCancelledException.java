@@ -0,0 +1,11 @@
+package com.music.aha.service;
+
+/**
+ * Thrown between chunks when an import has been cancelled. Chunks committed before the
+ * cancellation stay committed.
+ */
+public class ImportCancelledException extends RuntimeException {
+    public ImportCancelledException() {
+        super("Import cancelled");
+    }
+}
@@ -0,0 +1,108 @@
+package com.music.aha.service;
+
+import com.music.aha.csv.AhaMusicCsv;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the import directory and runs an incremental import whenever an export file is created
+ * or modified. Bursts of events (a browser writing a download in several steps) are coalesced
+ * into one import once the directory has been quiet for {@code aha.import.watch.quiet-period-ms}.
+ */
+@Component
+public class ImportDirectoryWatcher {
+
+    private final AhaMusicService musicService;
+    private final boolean enabled;
+    private final long quietPeriodMs;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    public ImportDirectoryWatcher(AhaMusicService musicService,
+                                  @Value("${aha.import.watch.enabled:false}") boolean enabled,
+                                  @Value("${aha.import.watch.quiet-period-ms:2000}") long quietPeriodMs) {
+        this.musicService = musicService;
+        this.enabled = enabled;
+        this.quietPeriodMs = quietPeriodMs;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path directory = musicService.getImportDirectory().toPath();
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this::watch, "aha-import-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("ImportDirectoryWatcher: watching " + directory);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean exportChanged = drain(key);
+
+                // Wait for the directory to settle before importing
+                while ((key = watchService.poll(quietPeriodMs, TimeUnit.MILLISECONDS)) != null) {
+                    exportChanged |= drain(key);
+                }
+                if (exportChanged) {
+                    importLatest();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean exportChanged = key.pollEvents().stream()
+                .map(event -> String.valueOf(event.context()))
+                .anyMatch(name -> AhaMusicCsv.exportDate(name) != null);
+        key.reset();
+        return exportChanged;
+    }
+
+    private void importLatest() {
+        File latestCsv = musicService.getLatestAhaMusicCsv();
+        if (latestCsv == null) {
+            return;
+        }
+        try {
+            musicService.importCsvFile(latestCsv, ImportMode.INCREMENTAL, new ImportReport());
+            System.out.println("ImportDirectoryWatcher: imported " + latestCsv.getName());
+        } catch (Exception e) {
+            System.err.println("ImportDirectoryWatcher: error importing " + latestCsv.getName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.music.aha.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * An import running (or queued) on the import executor. Exposed as-is by the job endpoints, so
+ * every getter is part of the JSON representation.
+ */
+public class ImportJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+
+    private final String id;
+    // File name, or a summary of the files for a backfill
+    private final String source;
+    private final ImportMode mode;
+    private final ImportReport report;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile String error;
+    private volatile LocalDateTime finishedAt;
+
+    public ImportJob(String id, String source, ImportMode mode, boolean dryRun) {
+        this.id = id;
+        this.source = source;
+        this.mode = mode;
+        this.report = new ImportReport(dryRun);
+    }
+
+    public String getId() { return id; }
+    public String getSource() { return source; }
+    public ImportMode getMode() { return mode; }
+    public ImportReport getReport() { return report; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public Status getStatus() { return status; }
+    public String getError() { return error; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    void markRunning() {
+        report.start();
+        status = Status.RUNNING;
+    }
+
+    void markFinished(Status status, String error) {
+        this.error = error;
+        this.finishedAt = LocalDateTime.now();
+        this.status = status;
+    }
+}
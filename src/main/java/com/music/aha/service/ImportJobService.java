@@ -0,0 +1,250 @@
+package com.music.aha.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs imports as background jobs on a dedicated executor, so bulk loads never occupy HTTP request
+ * threads. Jobs can be polled, streamed as server-sent events and cancelled between chunks.
+ * Finished jobs are kept in memory for {@code aha.import.jobs.retention-minutes}.
+ */
+@Service
+public class ImportJobService {
+
+    private final AhaMusicService musicService;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService progressScheduler;
+    // Writes the progress events; one thread per stream that is writing, so a slow client only stalls itself
+    private final ExecutorService sseSender;
+    private final long retentionMinutes;
+    private final long streamStallSeconds;
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+    public ImportJobService(AhaMusicService musicService,
+                            @Value("${aha.import.jobs.threads:1}") int threads,
+                            @Value("${aha.import.jobs.queue-capacity:16}") int queueCapacity,
+                            @Value("${aha.import.jobs.retention-minutes:60}") long retentionMinutes,
+                            @Value("${aha.import.jobs.stream-stall-seconds:30}") long streamStallSeconds) {
+        this.musicService = musicService;
+        this.retentionMinutes = retentionMinutes;
+        this.streamStallSeconds = streamStallSeconds;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), daemonThreads("aha-import-"));
+        this.progressScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("aha-import-progress-"));
+        this.sseSender = Executors.newCachedThreadPool(daemonThreads("aha-import-sse-"));
+    }
+
+    /**
+     * Queues an import of the given file. A dry run is rolled back and only produces the report.
+     *
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public ImportJob submit(File file, ImportMode mode, boolean dryRun) {
+        return submit(file.getName(), mode, dryRun,
+                report -> musicService.importCsvFile(file, mode, report));
+    }
+
+    /**
+     * Queues a backfill of the given files, oldest first.
+     *
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public ImportJob submitBackfill(List<File> files, boolean dryRun) {
+        String source = files.size() == 1 ? files.get(0).getName()
+                : files.size() + " files (" + files.get(0).getName() + " .. " + files.get(files.size() - 1).getName() + ")";
+        return submit(source, ImportMode.BACKFILL, dryRun,
+                report -> musicService.importCsvFiles(files, report));
+    }
+
+    private ImportJob submit(String source, ImportMode mode, boolean dryRun, ImportTask task) {
+        purgeFinished();
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), source, mode, dryRun);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    public Optional<ImportJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    public List<ImportJob> list() {
+        List<ImportJob> result = new ArrayList<>(jobs.values());
+        result.sort(Comparator.comparing(ImportJob::getCreatedAt).reversed());
+        return result;
+    }
+
+    /**
+     * Requests cancellation. A queued job never starts; a running job stops before its next chunk.
+     */
+    public Optional<ImportJob> cancel(String id) {
+        Optional<ImportJob> job = find(id);
+        job.ifPresent(j -> j.getReport().cancel());
+        return job;
+    }
+
+    /**
+     * Streams a snapshot of the job every {@code intervalMs} until it finishes.
+     */
+    public SseEmitter stream(ImportJob job, long intervalMs) {
+        SseEmitter emitter = new SseEmitter(0L);
+        stream(job, intervalMs, emitter);
+        return emitter;
+    }
+
+    void stream(ImportJob job, long intervalMs, SseEmitter emitter) {
+        ProgressStream stream = new ProgressStream(job, emitter);
+        stream.schedule(intervalMs);
+        emitter.onCompletion(stream::stop);
+        emitter.onTimeout(stream::stop);
+        emitter.onError(e -> stream.stop());
+    }
+
+    /**
+     * One client's progress stream. The shared scheduler only decides when a snapshot is due; the
+     * write happens on a sender thread, so a client that stops reading blocks its own sender rather
+     * than every other stream. Ticks that find the previous snapshot still being written are
+     * skipped, and a client stuck on one write for {@code aha.import.jobs.stream-stall-seconds} is
+     * dropped.
+     */
+    private final class ProgressStream {
+        private final ImportJob job;
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile long sendStartedNanos;
+        private volatile boolean stopped;
+        private volatile ScheduledFuture<?> ticks;
+
+        ProgressStream(ImportJob job, SseEmitter emitter) {
+            this.job = job;
+            this.emitter = emitter;
+        }
+
+        void schedule(long intervalMs) {
+            ticks = progressScheduler.scheduleAtFixedRate(this::tick, 0, intervalMs, TimeUnit.MILLISECONDS);
+            if (stopped) {
+                ticks.cancel(false);
+            }
+        }
+
+        private void tick() {
+            if (stopped) {
+                return;
+            }
+            if (sending.compareAndSet(false, true)) {
+                sendStartedNanos = System.nanoTime();
+                try {
+                    sseSender.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    stop();
+                }
+            } else if (System.nanoTime() - sendStartedNanos > TimeUnit.SECONDS.toNanos(streamStallSeconds)) {
+                stop();
+                // Waits for the stuck write to release the emitter, so it must not run on the scheduler
+                try {
+                    sseSender.execute(() -> emitter.completeWithError(
+                            new IOException("Client stopped reading the progress stream")));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down; the container closes the connection
+                }
+            }
+        }
+
+        private void send() {
+            try {
+                boolean finished = job.isFinished();
+                emitter.send(SseEmitter.event().name("progress").data(job));
+                if (finished) {
+                    stop();
+                    emitter.complete();
+                }
+            } catch (Exception e) {
+                // Client went away
+                stop();
+            } finally {
+                sending.set(false);
+            }
+        }
+
+        void stop() {
+            stopped = true;
+            ScheduledFuture<?> future = ticks;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(job -> job.getReport().cancel());
+        executor.shutdown();
+        progressScheduler.shutdownNow();
+        sseSender.shutdownNow();
+    }
+
+    private void run(ImportJob job, ImportTask task) {
+        if (job.getReport().isCancelRequested()) {
+            job.markFinished(ImportJob.Status.CANCELLED, null);
+            return;
+        }
+        job.markRunning();
+        try {
+            task.run(job.getReport());
+            job.markFinished(ImportJob.Status.COMPLETED, null);
+        } catch (ImportCancelledException e) {
+            job.markFinished(ImportJob.Status.CANCELLED, null);
+        } catch (Exception e) {
+            System.err.println("ImportJobService: job " + job.getId() + " failed: " + e.getMessage());
+            job.markFinished(ImportJob.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private void purgeFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.isFinished() && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private interface ImportTask {
+        void run(ImportReport report) throws Exception;
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
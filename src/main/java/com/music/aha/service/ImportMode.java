@@ -0,0 +1,15 @@
+package com.music.aha.service;
+
+/**
+ * How export files are read by an import.
+ */
+public enum ImportMode {
+    /** Only rows appended since the last incremental import, tracked by the import watermark. */
+    INCREMENTAL,
+    /** The whole file, streamed in chunks. */
+    FULL,
+    /** The whole file, parsed on several threads from a memory-mapped copy. */
+    PARALLEL,
+    /** Every export file in the import directory, parsed concurrently and merged in one pass. */
+    BACKFILL
+}
@@ -0,0 +1,93 @@
+package com.music.aha.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outcome counts of an import, kept while it runs rather than derived from table scans afterwards.
+ * Updated by the import thread after every chunk and safe to read from any other thread, so the
+ * same object serves as live progress and as the final report. Every parsed row ends up in
+ * exactly one of inserted, updated, skipped-older or malformed.
+ * Also carries the cancellation request that the import checks between chunks.
+ */
+public class ImportReport {
+    private final boolean dryRun;
+    private final AtomicLong rowsParsed = new AtomicLong();
+    private final AtomicLong inserted = new AtomicLong();
+    private final AtomicLong updated = new AtomicLong();
+    private final AtomicLong skippedOlder = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+    private final AtomicLong historyAppended = new AtomicLong();
+    private final AtomicLong historyArchivedSkipped = new AtomicLong();
+    private volatile long startedNanos = System.nanoTime();
+    private volatile long finishedNanos;
+    private volatile boolean cancelRequested;
+
+    public ImportReport() {
+        this(false);
+    }
+
+    public ImportReport(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /** True if the counts were computed inside a transaction that was rolled back. */
+    public boolean isDryRun() { return dryRun; }
+
+    public long getRowsParsed() { return rowsParsed.get(); }
+
+    /** Rows that added a song not yet in the library. */
+    public long getInserted() { return inserted.get(); }
+
+    /** Rows that replaced an older recognition of a song already in the library. */
+    public long getUpdated() { return updated.get(); }
+
+    /** Rows superseded by an equal or newer recognition of the same song, in the file or in the library. */
+    public long getSkippedOlder() { return skippedOlder.get(); }
+
+    /** Rows with missing columns or an unreadable time. */
+    public long getMalformed() { return malformed.get(); }
+
+    /** Recognitions added to the history; rows already recorded by an earlier import are not counted. */
+    public long getHistoryAppended() { return historyAppended.get(); }
+
+    /** Recognitions left out of the history because their month is archived; the library is still updated. */
+    public long getHistoryArchivedSkipped() { return historyArchivedSkipped.get(); }
+
+    public long getDurationMillis() {
+        long end = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+        return (end - startedNanos) / 1_000_000;
+    }
+
+    public long getRowsPerSecond() {
+        long elapsed = getDurationMillis();
+        return elapsed > 0 ? getRowsParsed() * 1000 / elapsed : 0;
+    }
+
+    public boolean isCancelRequested() { return cancelRequested; }
+
+    public void cancel() { cancelRequested = true; }
+
+    void addRowsParsed(long rows) { rowsParsed.addAndGet(rows); }
+
+    void addInserted(long rows) { inserted.addAndGet(rows); }
+
+    void addUpdated(long rows) { updated.addAndGet(rows); }
+
+    void addSkippedOlder(long rows) { skippedOlder.addAndGet(rows); }
+
+    void addMalformed(long rows) { malformed.addAndGet(rows); }
+
+    void addHistoryAppended(long rows) { historyAppended.addAndGet(rows); }
+
+    void addHistoryArchivedSkipped(long rows) { historyArchivedSkipped.addAndGet(rows); }
+
+    void start() { startedNanos = System.nanoTime(); }
+
+    void finish() { finishedNanos = System.nanoTime(); }
+
+    void checkCancelled() {
+        if (cancelRequested) {
+            throw new ImportCancelledException();
+        }
+    }
+}
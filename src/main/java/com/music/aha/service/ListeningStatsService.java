@@ -0,0 +1,47 @@
+package com.music.aha.service;
+
+import com.music.aha.model.ArtistPlays;
+import com.music.aha.model.ListeningPeriod;
+import com.music.aha.model.ListeningTotals;
+import com.music.aha.model.SongPlays;
+import com.music.aha.repository.ListeningStatsRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Listening analytics, served from rollups that every import updates as it appends to the
+ * recognition history. Nothing here scans the library or the history.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ListeningStatsService {
+
+    private final ListeningStatsRepository repository;
+
+    public ListeningStatsService(ListeningStatsRepository repository) {
+        this.repository = repository;
+    }
+
+    public List<SongPlays> getTopSongs(int limit) {
+        return repository.findTopSongs(limit);
+    }
+
+    public List<ArtistPlays> getTopArtists(int limit) {
+        return repository.findTopArtists(limit);
+    }
+
+    public List<ListeningPeriod> getDailyCounts(LocalDate from, LocalDate to) {
+        return repository.findPeriods(from, to, false);
+    }
+
+    public List<ListeningPeriod> getWeeklyCounts(LocalDate from, LocalDate to) {
+        return repository.findPeriods(from, to, true);
+    }
+
+    public ListeningTotals getTotals() {
+        return repository.findTotals();
+    }
+}
@@ -0,0 +1,133 @@
+package com.music.aha.service;
+
+import com.music.aha.model.MusicSummary;
+import com.music.aha.repository.AhaMusicRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Substring and fuzzy search over titles and artists. Uses the pg_trgm indexes when the extension
+ * is installed and otherwise an in-process {@link NgramSearchIndex}. Once the index is older than
+ * {@code aha.search.memory-refresh-seconds} it is rebuilt from the library on a background thread,
+ * while searches keep using the old one. {@code aha.search.mode}
+ * ({@code auto}, {@code trigram} or {@code memory}) forces either one, e.g. for benchmarking.
+ */
+@Service
+public class MusicSearchService {
+
+    private final AhaMusicRepository repository;
+    private final String mode;
+    private final long refreshNanos;
+    private volatile Boolean trigramAvailable;
+    private volatile NgramSearchIndex index;
+    private volatile long indexBuiltNanos;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "aha-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MusicSearchService(AhaMusicRepository repository,
+                              @Value("${aha.search.mode:auto}") String mode,
+                              @Value("${aha.search.memory-refresh-seconds:60}") long refreshSeconds) {
+        this.repository = repository;
+        this.mode = mode;
+        this.refreshNanos = refreshSeconds * 1_000_000_000L;
+    }
+
+    /**
+     * One page of matches, best match first. No total is computed; the slice only says whether
+     * another page follows.
+     *
+     * @throws IllegalArgumentException if the page is negative, the size is not positive, or the
+     *                                  page lies beyond the largest offset a search can skip to
+     */
+    public Slice<MusicSummary> search(String query, int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("page must not be negative and size must be positive");
+        }
+        // Both search paths take an int offset, and fetch one row past the page
+        long end = (long) page * size + size + 1;
+        if (end > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("page " + page + " is too far into the results");
+        }
+        int offset = page * size;
+        // One extra row tells whether there is a next page
+        List<MusicSummary> hits = useTrigram()
+                ? repository.searchTrigram(query, offset, size + 1)
+                : memoryIndex().search(query, offset, size + 1);
+        boolean hasNext = hits.size() > size;
+        return new SliceImpl<>(hasNext ? hits.subList(0, size) : hits, PageRequest.of(page, size), hasNext);
+    }
+
+    private boolean useTrigram() {
+        return switch (mode) {
+            case "trigram" -> true;
+            case "memory" -> false;
+            default -> isTrigramAvailable();
+        };
+    }
+
+    private boolean isTrigramAvailable() {
+        if (trigramAvailable == null) {
+            trigramAvailable = repository.isTrigramSearchAvailable();
+            if (!trigramAvailable) {
+                System.out.println("pg_trgm is not installed, searching an in-process n-gram index");
+            }
+        }
+        return trigramAvailable;
+    }
+
+    private NgramSearchIndex memoryIndex() {
+        NgramSearchIndex current = index;
+        if (current == null) {
+            // Nothing to search yet: the first caller builds the index and the others wait for it
+            synchronized (this) {
+                if (index == null) {
+                    indexBuiltNanos = System.nanoTime();
+                    index = NgramSearchIndex.build(repository.findAllSummaries());
+                }
+                return index;
+            }
+        }
+        if (System.nanoTime() - indexBuiltNanos >= refreshNanos && rebuilding.compareAndSet(false, true)) {
+            try {
+                rebuilder.execute(this::rebuild);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                rebuilding.set(false);
+            }
+        }
+        return current;
+    }
+
+    private void rebuild() {
+        try {
+            long startedNanos = System.nanoTime();
+            NgramSearchIndex fresh = NgramSearchIndex.build(repository.findAllSummaries());
+            indexBuiltNanos = startedNanos;
+            index = fresh;
+        } catch (RuntimeException e) {
+            // The stale index stays in use and the next search retries
+            System.err.println("MusicSearchService: rebuilding the search index failed: " + e.getMessage());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+}
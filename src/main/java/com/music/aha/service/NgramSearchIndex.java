@@ -0,0 +1,217 @@
+package com.music.aha.service;
+
+import com.music.aha.model.MusicSummary;
+import com.music.aha.model.SongKey;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable in-memory trigram index over song titles and artists, used for search when the
+ * database has no pg_trgm. Scoring follows the database path: the share of the query's trigrams
+ * that occur in the song (as pg_trgm's word_similarity does), plus 1 if the query is a plain
+ * substring of the title or artists. Text is folded with {@link SongKey#normalize}.
+ */
+public final class NgramSearchIndex {
+
+    // Same cut-off as pg_trgm.word_similarity_threshold
+    private static final double MIN_SCORE = 0.6;
+
+    private static final Comparator<Hit> BY_RELEVANCE = Comparator
+            .comparingDouble((Hit hit) -> hit.score).reversed()
+            .thenComparing(hit -> hit.song.time(), Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(hit -> hit.song.acrId(), Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final MusicSummary[] songs;
+    private final String[] titles;
+    private final String[] artists;
+    // Trigram -> ascending ids of the songs containing it
+    private final TrigramTable postings;
+
+    private NgramSearchIndex(MusicSummary[] songs, String[] titles, String[] artists, TrigramTable postings) {
+        this.songs = songs;
+        this.titles = titles;
+        this.artists = artists;
+        this.postings = postings;
+    }
+
+    public static NgramSearchIndex build(List<MusicSummary> library) {
+        int count = library.size();
+        MusicSummary[] songs = library.toArray(new MusicSummary[0]);
+        String[] titles = new String[count];
+        String[] artists = new String[count];
+        TrigramTable postings = new TrigramTable();
+        for (int id = 0; id < count; id++) {
+            titles[id] = SongKey.normalize(songs[id].title());
+            artists[id] = SongKey.normalize(songs[id].artists());
+            for (long gram : trigrams(" " + titles[id] + " ", " " + artists[id] + " ")) {
+                postings.add(gram, id);
+            }
+        }
+        postings.trim();
+        return new NgramSearchIndex(songs, titles, artists, postings);
+    }
+
+    public int size() {
+        return songs.length;
+    }
+
+    /**
+     * Matching songs ranked best first, then newest first.
+     */
+    public List<MusicSummary> search(String query, int offset, int limit) {
+        String folded = SongKey.normalize(query);
+        if (folded.isEmpty()) {
+            return List.of();
+        }
+        // Long queries match anywhere inside a word; short ones need the word-boundary padding
+        long[] queryGrams = trigrams(folded.length() >= 3 ? folded : " " + folded + " ", "");
+
+        int[] shared = new int[songs.length];
+        IntList touched = new IntList();
+        for (long gram : queryGrams) {
+            IntList ids = postings.get(gram);
+            if (ids == null) {
+                continue;
+            }
+            for (int i = 0; i < ids.size; i++) {
+                int id = ids.values[i];
+                if (shared[id]++ == 0) {
+                    touched.add(id);
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < touched.size; i++) {
+            int id = touched.values[i];
+            double score = (double) shared[id] / queryGrams.length;
+            if (titles[id].contains(folded) || artists[id].contains(folded)) {
+                score += 1;
+            }
+            if (score >= MIN_SCORE) {
+                hits.add(new Hit(songs[id], score));
+            }
+        }
+        hits.sort(BY_RELEVANCE);
+
+        List<MusicSummary> page = new ArrayList<>(Math.max(0, Math.min(limit, hits.size() - offset)));
+        // Compared as a count so that a huge limit cannot overflow offset + limit
+        for (int i = offset; i < hits.size() && i - offset < limit; i++) {
+            page.add(hits.get(i).song);
+        }
+        return page;
+    }
+
+    // Distinct trigrams of both texts, each packed into a long as three 16-bit chars
+    private static long[] trigrams(String first, String second) {
+        long[] grams = new long[Math.max(0, first.length() - 2) + Math.max(0, second.length() - 2)];
+        int count = 0;
+        for (String text : new String[] { first, second }) {
+            for (int i = 0; i + 2 < text.length(); i++) {
+                grams[count++] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+            }
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static final class Hit {
+        private final MusicSummary song;
+        private final double score;
+
+        Hit(MusicSummary song, double score) {
+            this.song = song;
+            this.score = score;
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void trim() {
+            values = Arrays.copyOf(values, size);
+        }
+    }
+
+    // Open-addressing map from packed trigram to posting list, without boxing the keys
+    private static final class TrigramTable {
+        private static final long EMPTY = -1L;
+
+        private long[] keys = newKeys(1 << 12);
+        private IntList[] lists = new IntList[1 << 12];
+        private int size;
+
+        IntList get(long gram) {
+            int slot = slot(keys, gram);
+            return keys[slot] == gram ? lists[slot] : null;
+        }
+
+        void add(long gram, int id) {
+            int slot = slot(keys, gram);
+            if (keys[slot] != gram) {
+                if ((size + 1) * 4 > keys.length * 3) {
+                    grow();
+                    slot = slot(keys, gram);
+                }
+                keys[slot] = gram;
+                lists[slot] = new IntList();
+                size++;
+            }
+            lists[slot].add(id);
+        }
+
+        void trim() {
+            for (IntList list : lists) {
+                if (list != null) {
+                    list.trim();
+                }
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            IntList[] oldLists = lists;
+            keys = newKeys(oldKeys.length * 2);
+            lists = new IntList[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    lists[slot] = oldLists[i];
+                }
+            }
+        }
+
+        private static int slot(long[] keys, long gram) {
+            int mask = keys.length - 1;
+            int slot = (int) ((gram * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != gram) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
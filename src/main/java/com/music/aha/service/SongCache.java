@@ -0,0 +1,174 @@
+package com.music.aha.service;
+
+import com.music.aha.model.AhaMusic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded read-through cache of song lookups by song key, including "not found" results.
+ * Entries are evicted least-recently-used beyond {@code aha.cache.songs.max-size} and expire after
+ * {@code aha.cache.songs.ttl-seconds}. Callers get their own copy of a cached record, so changing
+ * it never changes the cache.
+ * <p>
+ * Every write to {@code aha_music} must invalidate the keys it touched once it has committed. A
+ * lookup that was already loading when an invalidation happened does not store its result, so a
+ * stale row cannot be put back.
+ */
+@Component
+public class SongCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public SongCache(@Value("${aha.cache.songs.max-size:10000}") int maxSize,
+                     @Value("${aha.cache.songs.ttl-seconds:600}") long ttlSeconds) {
+        this(maxSize, ttlSeconds, System::nanoTime);
+    }
+
+    // Tests drive expiry with their own clock
+    SongCache(int maxSize, long ttlSeconds, LongSupplier nanoTime) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * The cached lookup for {@code key}, or the result of {@code loader} if there is none (which is
+     * then cached).
+     */
+    public Optional<AhaMusic> get(UUID key, Function<UUID, Optional<AhaMusic>> loader) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && nanoTime.getAsLong() - entry.loadedNanos < ttlNanos) {
+                hits.increment();
+                return Optional.ofNullable(copy(entry.music));
+            }
+            if (entry != null) {
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+
+        misses.increment();
+        long version = invalidations.get();
+        Optional<AhaMusic> loaded = loader.apply(key);
+        AhaMusic snapshot = copy(loaded.orElse(null));
+        synchronized (entries) {
+            if (invalidations.get() == version) {
+                entries.put(key, new Entry(snapshot, nanoTime.getAsLong()));
+                evictOverflow();
+            }
+        }
+        return loaded;
+    }
+
+    public void invalidate(UUID key) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll(Iterable<AhaMusic> records) {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            for (AhaMusic music : records) {
+                entries.remove(music.getSongKey());
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            invalidations.incrementAndGet();
+            entries.clear();
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (entries) {
+            return new Stats(entries.size(), maxSize, hits.sum(), misses.sum(), evictions.sum());
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<UUID, Entry>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static AhaMusic copy(AhaMusic music) {
+        if (music == null) {
+            return null;
+        }
+        AhaMusic copy = new AhaMusic();
+        copy.setAcrId(music.getAcrId());
+        copy.setTitle(music.getTitle());
+        copy.setArtists(music.getArtists());
+        copy.setSongKey(music.getSongKey());
+        copy.setTime(music.getTime());
+        copy.setSourceUrl(music.getSourceUrl());
+        copy.setDetailUrl(music.getDetailUrl());
+        copy.setAddedToPlaylist(music.isAddedToPlaylist());
+        return copy;
+    }
+
+    private static class Entry {
+        // Null for a cached "not found"
+        private final AhaMusic music;
+        private final long loadedNanos;
+
+        Entry(AhaMusic music, long loadedNanos) {
+            this.music = music;
+            this.loadedNanos = loadedNanos;
+        }
+    }
+
+    public static class Stats {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        public Stats(int size, int maxSize, long hits, long misses, long evictions) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public int getSize() { return size; }
+        public int getMaxSize() { return maxSize; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total > 0 ? (double) hits / total : 0;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.music.aha.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate limiter: up to {@code burst} calls at once, then {@code permitsPerSecond} on
+ * average. Callers reserve their token under the lock and sleep outside it, so waiting threads
+ * are released one slot apart in arrival order instead of all retrying at once.
+ */
+final class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoTime;
+    private double tokens;
+    private long refilledNanos;
+
+    TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    // Tests drive the refill with their own clock
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoTime) {
+        // Also rejects NaN
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1: " + burst);
+        }
+        this.capacity = burst;
+        this.tokensPerNano = permitsPerSecond / 1_000_000_000d;
+        this.nanoTime = nanoTime;
+        this.tokens = capacity;
+        this.refilledNanos = nanoTime.getAsLong();
+    }
+
+    /**
+     * Blocks until a token is available and takes it.
+     */
+    void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Takes a token, possibly one that has not been refilled yet.
+     *
+     * @return how long the caller must wait before using it, in nanoseconds
+     */
+    synchronized long reserve() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - refilledNanos) * tokensPerNano);
+        refilledNanos = now;
+        // A negative balance is a reservation for a token that has not been refilled yet
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+    }
+}
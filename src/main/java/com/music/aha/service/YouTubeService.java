@@ -6,15 +6,30 @@ import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.youtube.YouTube;
 import com.google.api.services.youtube.model.SearchListResponse;
 import com.google.api.services.youtube.model.SearchResult;
+import com.music.aha.model.SongKey;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class YouTubeService {
@@ -39,10 +54,40 @@ public class YouTubeService {
 
     private final Environment environment;
     // Simple cache for video ID lookups to avoid repeated API calls
-    private final ConcurrentHashMap<String, String> videoIdCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, String> videoIdCache = new ConcurrentHashMap<>();
+    // Shared by all requests, so the limits hold for the whole application and its API quota
+    private final ExecutorService searchExecutor;
+    private final TokenBucket searchRateLimiter;
+    private final long searchTimeoutSeconds;
+    private final NetHttpTransport httpTransport = new NetHttpTransport();
     
-    public YouTubeService(Environment environment) {
+    public YouTubeService(Environment environment,
+                          @Value("${aha.youtube.search.parallelism:4}") int parallelism,
+                          @Value("${aha.youtube.search.requests-per-second:5}") double requestsPerSecond,
+                          @Value("${aha.youtube.search.burst:5}") int burst,
+                          @Value("${aha.youtube.search.timeout-seconds:30}") long searchTimeoutSeconds) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("aha.youtube.search.parallelism must be at least 1: " + parallelism);
+        }
+        if (searchTimeoutSeconds < 1) {
+            throw new IllegalArgumentException(
+                    "aha.youtube.search.timeout-seconds must be at least 1: " + searchTimeoutSeconds);
+        }
         this.environment = environment;
+        // Validates the rate and burst before any thread is started
+        this.searchRateLimiter = new TokenBucket(requestsPerSecond, burst);
+        this.searchTimeoutSeconds = searchTimeoutSeconds;
+        AtomicInteger counter = new AtomicInteger();
+        this.searchExecutor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "youtube-search-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        searchExecutor.shutdownNow();
     }
     
     @PostConstruct
@@ -71,7 +116,7 @@ public class YouTubeService {
      */
     private YouTube getYouTubeService(Credential credential) {
         return new YouTube.Builder(
-                new NetHttpTransport(),
+                httpTransport,
                 JacksonFactory.getDefaultInstance(),
                 credential
         ).setApplicationName("aha-music").build();
@@ -85,7 +130,7 @@ public class YouTubeService {
      * @return YouTube video ID if found, null otherwise
      */
     public String searchVideo(String title, String artists, Credential credential) {
-        String cacheKey = (title + "|" + artists).toLowerCase();
+        UUID cacheKey = SongKey.of(title, artists);
         
         // Check cache first
         String cachedVideoId = videoIdCache.get(cacheKey);
@@ -96,6 +141,7 @@ public class YouTubeService {
         // Create a more specific search query for music videos
         String query = title + " " + artists + " official music video";
         try {
+            searchRateLimiter.acquire();
             YouTube youtube = getYouTubeService(credential);
             YouTube.Search.List search = youtube.search().list(Arrays.asList("id", "snippet"));
             search.setQ(query);
@@ -131,6 +177,8 @@ public class YouTubeService {
                 videoIdCache.put(cacheKey, videoId); // Cache the result
                 return videoId;
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             System.err.println("Error searching YouTube for: " + query);
             System.err.println("Error: " + e.getMessage());
@@ -139,34 +187,113 @@ public class YouTubeService {
     }
 
     /**
-     * Search for multiple videos and return their IDs using user's access token
+     * Search for multiple videos and return their IDs using user's access token.
+     * Songs are looked up concurrently, at most {@code aha.youtube.search.parallelism} at a time and
+     * no faster than {@code aha.youtube.search.requests-per-second}; cached songs and repeats of a
+     * song in the list cost no API call. A lookup still running {@code aha.youtube.search.timeout-seconds}
+     * after it started is cancelled and its song reported as timed out; time spent queued behind
+     * other searches does not count.
      * @param songs List of songs with title and artists
      * @param credential User's OAuth2 credential
-     * @return List of video IDs
+     * @return Video IDs in the order of {@code songs}, without the songs that were not found, and the
+     *         songs whose search timed out
      */
-    public List<String> searchVideos(List<SongInfo> songs, Credential credential) {
-        List<String> videoIds = new ArrayList<>();
-        
-        // Adaptive delay: shorter for small batches, longer for large ones
-        int delayMs = songs.size() > 20 ? 200 : 50;
-        
+    public VideoSearch searchVideos(List<SongInfo> songs, Credential credential) {
+        List<Lookup> lookups = new ArrayList<>(songs.size());
+        Map<UUID, Lookup> bySong = new HashMap<>();
         for (SongInfo song : songs) {
-            String videoId = searchVideo(song.getTitle(), song.getArtists(), credential);
-            if (videoId != null) {
-                videoIds.add(videoId);
+            UUID key = SongKey.of(song.getTitle(), song.getArtists());
+            Lookup lookup = bySong.get(key);
+            if (lookup == null) {
+                String cached = videoIdCache.get(key);
+                if (cached != null) {
+                    lookup = new Lookup(() -> cached);
+                    lookup.run();
+                } else {
+                    lookup = new Lookup(() -> searchVideo(song.getTitle(), song.getArtists(), credential));
+                    searchExecutor.execute(lookup);
+                }
+                bySong.put(key, lookup);
             }
-            
-            // Add delay to respect rate limits (only if not the last song)
-            if (songs.indexOf(song) < songs.size() - 1) {
-                try {
-                    Thread.sleep(delayMs);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
+            lookups.add(lookup);
+        }
+
+        List<String> videoIds = new ArrayList<>();
+        List<SongInfo> timedOut = new ArrayList<>();
+        for (int i = 0; i < lookups.size(); i++) {
+            Lookup lookup = lookups.get(i);
+            try {
+                String videoId = await(lookup);
+                if (videoId != null) {
+                    videoIds.add(videoId);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                bySong.values().forEach(pending -> pending.cancel(true));
+                break;
+            } catch (TimeoutException e) {
+                lookup.cancel(true);
+                timedOut.add(songs.get(i));
+                System.err.println("YouTube search timed out after " + searchTimeoutSeconds + " s: "
+                        + songs.get(i).getTitle() + " - " + songs.get(i).getArtists());
+            } catch (ExecutionException | CancellationException e) {
+                // searchVideo reports its own failures, and a repeat of a timed-out song is already
+                // reported; the song is left out like one that was not found
+            }
+        }
+        return new VideoSearch(videoIds, timedOut);
+    }
+
+    // Waits for a lookup to start, however long it is queued, then at most the timeout for it to finish
+    private String await(Lookup lookup) throws InterruptedException, ExecutionException, TimeoutException {
+        while (!lookup.started.await(searchTimeoutSeconds, TimeUnit.SECONDS)) {
+            if (searchExecutor.isShutdown()) {
+                // Queued lookups are dropped on shutdown and would never start
+                lookup.cancel(false);
+                throw new CancellationException("YouTube search stopped");
             }
         }
-        return videoIds;
+        long remaining = lookup.startedAt + TimeUnit.SECONDS.toNanos(searchTimeoutSeconds) - System.nanoTime();
+        return lookup.get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+    }
+
+    // A search that records when a worker picked it up, so its timeout does not include queue time
+    private static final class Lookup extends FutureTask<String> {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile long startedAt;
+
+        Lookup(Callable<String> search) {
+            super(search);
+        }
+
+        @Override
+        public void run() {
+            startedAt = System.nanoTime();
+            started.countDown();
+            super.run();
+        }
+    }
+
+    /**
+     * Outcome of {@link #searchVideos}: the videos found, and the songs whose search timed out so the
+     * caller can tell them apart from songs YouTube has no video for.
+     */
+    public static class VideoSearch {
+        private final List<String> videoIds;
+        private final List<SongInfo> timedOut;
+
+        public VideoSearch(List<String> videoIds, List<SongInfo> timedOut) {
+            this.videoIds = videoIds;
+            this.timedOut = timedOut;
+        }
+
+        public List<String> getVideoIds() {
+            return videoIds;
+        }
+
+        public List<SongInfo> getTimedOut() {
+            return timedOut;
+        }
     }
 
     /**
@@ -0,0 +1,86 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+
+/**
+ * Rebuilds {@code aha_music_history} as a table range-partitioned by month on {@code time}, so
+ * time-bounded queries only read the months they cover and old months can be detached as plain
+ * tables. Partitions are created for every month from the oldest recognition up to next month;
+ * the import adds later ones as needed. The partition DDL is written out here rather than taken
+ * from the application's {@code HistoryPartitions}, so this migration stays as it was applied.
+ * <p>
+ * {@code aha_music} itself stays unpartitioned: it holds one row per song key, which must be unique
+ * across all times, and PostgreSQL only enforces uniqueness on a partitioned table when the
+ * partition key is part of it. The history's identity {@code (song_key, time)} already includes
+ * the time, so its uniqueness carries over unchanged.
+ */
+public class V10__partition_history extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE aha_music_history RENAME TO aha_music_history_unpartitioned");
+            // Index names are unique per schema, so free them for the new table
+            statement.execute("ALTER TABLE aha_music_history_unpartitioned " +
+                    "RENAME CONSTRAINT aha_music_history_pkey TO aha_music_history_unpartitioned_pkey");
+            statement.execute("ALTER TABLE aha_music_history_unpartitioned " +
+                    "RENAME CONSTRAINT uk_aha_music_history_song_time TO uk_aha_music_history_unpartitioned_song_time");
+            // Keep the id sequence when the old table is dropped
+            statement.execute("ALTER SEQUENCE aha_music_history_id_seq OWNED BY NONE");
+
+            statement.execute(
+                    "CREATE TABLE aha_music_history (" +
+                    "id BIGINT NOT NULL DEFAULT nextval('aha_music_history_id_seq'), " +
+                    "acr_id VARCHAR(255), " +
+                    "title VARCHAR(255) NOT NULL, " +
+                    "artists VARCHAR(255) NOT NULL, " +
+                    "time TIMESTAMP WITHOUT TIME ZONE NOT NULL, " +
+                    "source_url VARCHAR(255), " +
+                    "detail_url VARCHAR(255), " +
+                    "imported_at TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now(), " +
+                    "song_key UUID NOT NULL, " +
+                    "CONSTRAINT aha_music_history_pkey PRIMARY KEY (id, time), " +
+                    "CONSTRAINT uk_aha_music_history_song_time UNIQUE (song_key, time)" +
+                    ") PARTITION BY RANGE (time)");
+            statement.execute("ALTER SEQUENCE aha_music_history_id_seq OWNED BY aha_music_history.id");
+            // Range listings, newest first; partitioned, so each month gets its own index
+            statement.execute("CREATE INDEX idx_aha_music_history_time_id ON aha_music_history (time DESC, id DESC)");
+
+            YearMonth first = YearMonth.now();
+            try (ResultSet oldest = statement.executeQuery("SELECT min(time) FROM aha_music_history_unpartitioned")) {
+                Timestamp time = oldest.next() ? oldest.getTimestamp(1) : null;
+                if (time != null && YearMonth.from(time.toLocalDateTime()).isBefore(first)) {
+                    first = YearMonth.from(time.toLocalDateTime());
+                }
+            }
+            YearMonth last = YearMonth.now().plusMonths(1);
+            try (ResultSet newest = statement.executeQuery("SELECT max(time) FROM aha_music_history_unpartitioned")) {
+                Timestamp time = newest.next() ? newest.getTimestamp(1) : null;
+                if (time != null && YearMonth.from(time.toLocalDateTime()).isAfter(last)) {
+                    last = YearMonth.from(time.toLocalDateTime());
+                }
+            }
+            for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+                statement.execute(String.format(
+                        "CREATE TABLE IF NOT EXISTS aha_music_history_%04d_%02d PARTITION OF aha_music_history " +
+                        "FOR VALUES FROM ('%s') TO ('%s')",
+                        month.getYear(), month.getMonthValue(), month.atDay(1), month.plusMonths(1).atDay(1)));
+            }
+
+            statement.execute(
+                    "INSERT INTO aha_music_history " +
+                    "(id, acr_id, title, artists, time, source_url, detail_url, imported_at, song_key) " +
+                    "SELECT id, acr_id, title, artists, time, source_url, detail_url, imported_at, song_key " +
+                    "FROM aha_music_history_unpartitioned");
+            statement.execute("DROP TABLE aha_music_history_unpartitioned");
+        }
+    }
+}
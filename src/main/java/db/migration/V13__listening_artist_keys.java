@@ -0,0 +1,108 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fills the {@code listening_artist} rollup from {@code aha_music_history}, with the artist keys
+ * folded in Java exactly like the import folds them, so rows added later land on the same keys.
+ * Anything already in the table is replaced: databases that ran an earlier V11 got keys folded in
+ * SQL, which can disagree with the import for Unicode spaces, control characters and case.
+ * <p>
+ * The folding is a frozen copy of {@code SongKey.normalize} as of this version: an applied
+ * migration must keep producing the same keys, whatever later happens to the application class.
+ */
+public class V13__listening_artist_keys extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 5000;
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        Map<String, ArtistPlays> byKey = new HashMap<>();
+        try (Statement select = connection.createStatement()) {
+            // Stream the groups instead of loading them at once; the migration runs inside a transaction
+            select.setFetchSize(BATCH_SIZE);
+            try (ResultSet rows = select.executeQuery(
+                    "SELECT artists, count(*), max(time) FROM aha_music_history GROUP BY artists")) {
+                while (rows.next()) {
+                    String artists = rows.getString(1);
+                    long plays = rows.getLong(2);
+                    Timestamp lastTime = rows.getTimestamp(3);
+                    byKey.merge(normalize(artists), new ArtistPlays(artists, plays, lastTime), ArtistPlays::add);
+                }
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM listening_artist");
+        }
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO listening_artist (artist_key, artists, plays, last_time) VALUES (?, ?, ?, ?)")) {
+            int pending = 0;
+            for (Map.Entry<String, ArtistPlays> entry : byKey.entrySet()) {
+                ArtistPlays artist = entry.getValue();
+                insert.setString(1, entry.getKey());
+                insert.setString(2, artist.artists);
+                insert.setLong(3, artist.plays);
+                insert.setTimestamp(4, artist.lastTime);
+                insert.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    insert.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder folded = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c) || Character.isISOControl(c)) {
+                pendingSpace = folded.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                folded.append(' ');
+                pendingSpace = false;
+            }
+            folded.append(c);
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // Plays of every spelling that folds to one key; the most recently recognised spelling is shown
+    private static final class ArtistPlays {
+        private final String artists;
+        private final long plays;
+        private final Timestamp lastTime;
+
+        ArtistPlays(String artists, long plays, Timestamp lastTime) {
+            this.artists = artists;
+            this.plays = plays;
+            this.lastTime = lastTime;
+        }
+
+        ArtistPlays add(ArtistPlays other) {
+            ArtistPlays latest = other.lastTime.after(lastTime) ? other : this;
+            return new ArtistPlays(latest.artists, plays + other.plays, latest.lastTime);
+        }
+    }
+}
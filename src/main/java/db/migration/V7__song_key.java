@@ -0,0 +1,118 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Adds the {@code song_key} column to {@code aha_music} and {@code aha_music_history}. The keys are
+ * computed in Java rather than in SQL so that existing rows are folded exactly like the ones the
+ * application writes. Rows that become duplicates once case and whitespace are folded are merged:
+ * the latest recognition survives and keeps any playlist flag of the others.
+ * <p>
+ * The folding and hashing are a frozen copy of {@code SongKey} as of this version: an applied
+ * migration must keep producing the same keys, whatever later happens to the application class.
+ */
+public class V7__song_key extends BaseJavaMigration {
+
+    private static final int BATCH_SIZE = 5000;
+    private static final char SEPARATOR = '\u001F';
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE aha_music ADD COLUMN IF NOT EXISTS song_key UUID");
+            statement.execute("ALTER TABLE aha_music_history ADD COLUMN IF NOT EXISTS song_key UUID");
+        }
+
+        fillSongKeys(connection, "aha_music", "acr_id");
+        fillSongKeys(connection, "aha_music_history", "id");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(
+                    "UPDATE aha_music m SET added_to_playlist = true " +
+                    "WHERE NOT m.added_to_playlist AND EXISTS (" +
+                    "SELECT 1 FROM aha_music o WHERE o.song_key = m.song_key AND o.added_to_playlist)");
+            statement.execute(
+                    "DELETE FROM aha_music WHERE acr_id IN (" +
+                    "SELECT acr_id FROM (" +
+                    "SELECT acr_id, ROW_NUMBER() OVER (PARTITION BY song_key ORDER BY time DESC NULLS LAST, acr_id) AS rn " +
+                    "FROM aha_music) ranked WHERE rn > 1)");
+            statement.execute("ALTER TABLE aha_music ALTER COLUMN song_key SET NOT NULL");
+            statement.execute("CREATE UNIQUE INDEX IF NOT EXISTS uk_aha_music_song_key ON aha_music (song_key)");
+
+            statement.execute(
+                    "DELETE FROM aha_music_history WHERE id IN (" +
+                    "SELECT id FROM (" +
+                    "SELECT id, ROW_NUMBER() OVER (PARTITION BY song_key, time ORDER BY id) AS rn " +
+                    "FROM aha_music_history) ranked WHERE rn > 1)");
+            statement.execute("ALTER TABLE aha_music_history ALTER COLUMN song_key SET NOT NULL");
+            statement.execute("ALTER TABLE aha_music_history DROP CONSTRAINT IF EXISTS uk_aha_music_history_recognition");
+            statement.execute("ALTER TABLE aha_music_history " +
+                    "ADD CONSTRAINT uk_aha_music_history_song_time UNIQUE (song_key, time)");
+        }
+    }
+
+    private static void fillSongKeys(Connection connection, String table, String idColumn) throws Exception {
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        try (Statement select = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE " + table + " SET song_key = ? WHERE " + idColumn + " = ?")) {
+            // Stream the rows instead of loading the table; the migration runs inside a transaction
+            select.setFetchSize(BATCH_SIZE);
+            try (ResultSet rows = select.executeQuery(
+                    "SELECT " + idColumn + ", title, artists FROM " + table + " WHERE song_key IS NULL")) {
+                int pending = 0;
+                while (rows.next()) {
+                    update.setObject(1, songKey(md5, rows.getString("title"), rows.getString("artists")));
+                    update.setObject(2, rows.getObject(1));
+                    update.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        update.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    update.executeBatch();
+                }
+            }
+        }
+    }
+
+    private static UUID songKey(MessageDigest md5, String title, String artists) {
+        String folded = normalize(title) + SEPARATOR + normalize(artists);
+        ByteBuffer hash = ByteBuffer.wrap(md5.digest(folded.getBytes(StandardCharsets.UTF_8)));
+        return new UUID(hash.getLong(), hash.getLong());
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder folded = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c) || Character.isISOControl(c)) {
+                pendingSpace = folded.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                folded.append(' ');
+                pendingSpace = false;
+            }
+            folded.append(c);
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,47 @@
+-- Listening analytics, pre-aggregated from aha_music_history. Every history append updates these in
+-- the same statement (see AhaMusicRepositoryCustomImpl), so the analytics endpoints read a handful
+-- of rows instead of grouping the history or the library.
+
+-- Plays per song. previous_first_time is the first_time before the latest update, so that update
+-- can tell whether the song's first recognition moved to an earlier day.
+CREATE TABLE IF NOT EXISTS listening_song (
+  song_key UUID PRIMARY KEY,
+  title VARCHAR(255) NOT NULL,
+  artists VARCHAR(255) NOT NULL,
+  plays BIGINT NOT NULL,
+  first_time TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  last_time TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  previous_first_time TIMESTAMP WITHOUT TIME ZONE
+);
+CREATE INDEX IF NOT EXISTS idx_listening_song_plays ON listening_song (plays DESC);
+
+-- Plays per artist string, folded for case and whitespace; artists is the latest spelling seen
+CREATE TABLE IF NOT EXISTS listening_artist (
+  artist_key VARCHAR(255) PRIMARY KEY,
+  artists VARCHAR(255) NOT NULL,
+  plays BIGINT NOT NULL,
+  last_time TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_listening_artist_plays ON listening_artist (plays DESC);
+
+-- Recognitions per day, and how many songs were recognised for the first time that day
+CREATE TABLE IF NOT EXISTS listening_daily (
+  day DATE PRIMARY KEY,
+  recognitions BIGINT NOT NULL,
+  new_songs BIGINT NOT NULL
+);
+
+INSERT INTO listening_song (song_key, title, artists, plays, first_time, last_time)
+SELECT song_key, (array_agg(title ORDER BY time DESC))[1], (array_agg(artists ORDER BY time DESC))[1],
+       count(*), min(time), max(time)
+FROM aha_music_history
+GROUP BY song_key
+ON CONFLICT DO NOTHING;
+
+-- listening_artist is filled by V13, which folds the artist keys in Java like the import does
+
+INSERT INTO listening_daily (day, recognitions, new_songs)
+SELECT d.day, d.recognitions, COALESCE(n.new_songs, 0)
+FROM (SELECT time::date AS day, count(*) AS recognitions FROM aha_music_history GROUP BY 1) d
+LEFT JOIN (SELECT first_time::date AS day, count(*) AS new_songs FROM listening_song GROUP BY 1) n USING (day)
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,8 @@
+-- Months of aha_music_history that were deliberately detached to archive them. Imports leave
+-- recognitions from these months out of the history (and count them) instead of re-creating the
+-- partition or failing on a row with nowhere to go.
+CREATE TABLE IF NOT EXISTS aha_music_history_archived_month (
+  month DATE PRIMARY KEY,
+  archived_at TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now(),
+  CONSTRAINT chk_aha_music_history_archived_month_first_day CHECK (EXTRACT(DAY FROM month) = 1)
+);
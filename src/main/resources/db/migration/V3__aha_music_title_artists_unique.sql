@@ -0,0 +1,39 @@
+-- The CSV import upserts with ON CONFLICT (title, artists), which needs a unique index on exactly
+-- those columns. Tables created by Hibernate already have it; add it where it is missing.
+-- Older imports could insert the same title and artists more than once, so those duplicates are
+-- merged first: the latest recognition survives and keeps any playlist flag of the others.
+DO $$
+BEGIN
+  IF NOT EXISTS (
+    SELECT 1
+    FROM pg_index i
+    JOIN pg_class t ON t.oid = i.indrelid
+    WHERE t.relname = 'aha_music'
+      AND i.indisunique
+      AND i.indnkeyatts = 2
+      AND (SELECT array_agg(a.attname::text ORDER BY a.attname)
+           FROM pg_attribute a
+           WHERE a.attrelid = t.oid AND a.attnum = ANY (i.indkey)) = ARRAY['artists', 'title']
+  ) THEN
+    -- The playlist column is added by a repeatable migration, which runs after this one on a new database
+    IF EXISTS (
+      SELECT 1 FROM information_schema.columns
+      WHERE table_name = 'aha_music' AND column_name = 'added_to_playlist'
+    ) THEN
+      EXECUTE 'UPDATE aha_music m SET added_to_playlist = true '
+           || 'WHERE NOT m.added_to_playlist AND EXISTS ('
+           || 'SELECT 1 FROM aha_music o '
+           || 'WHERE o.title = m.title AND o.artists = m.artists AND o.added_to_playlist)';
+    END IF;
+
+    -- Rows with a NULL title or artists never conflict in a unique index and are left alone
+    DELETE FROM aha_music WHERE acr_id IN (
+      SELECT acr_id FROM (
+        SELECT acr_id, ROW_NUMBER() OVER (PARTITION BY title, artists ORDER BY time DESC NULLS LAST, acr_id) AS rn
+        FROM aha_music
+        WHERE title IS NOT NULL AND artists IS NOT NULL) ranked
+      WHERE rn > 1);
+
+    CREATE UNIQUE INDEX uk_aha_music_title_artists ON aha_music (title, artists);
+  END IF;
+END$$;
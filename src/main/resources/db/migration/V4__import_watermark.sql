@@ -0,0 +1,8 @@
+-- Tracks how far each import source has been read so repeated imports only process appended rows
+CREATE TABLE IF NOT EXISTS import_watermark (
+  source VARCHAR(64) PRIMARY KEY,
+  file_name VARCHAR(255) NOT NULL,
+  byte_offset BIGINT NOT NULL,
+  max_time TIMESTAMP WITHOUT TIME ZONE,
+  updated_at TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
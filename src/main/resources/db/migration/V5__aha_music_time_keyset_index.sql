@@ -0,0 +1,3 @@
+-- Supports keyset pagination ordered by (time DESC, acr_id DESC): every page is an index range
+-- scan starting at the cursor, however deep it is
+CREATE INDEX IF NOT EXISTS idx_aha_music_time_acr_id ON aha_music (time DESC, acr_id DESC);
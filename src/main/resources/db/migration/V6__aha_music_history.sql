@@ -0,0 +1,21 @@
+-- Append-only log of every recognition ever imported. aha_music keeps only the latest recognition
+-- per (title, artists) and serves as the projection that listings read from.
+-- (title, artists, time) identifies a recognition, so re-importing the same export adds nothing.
+CREATE TABLE IF NOT EXISTS aha_music_history (
+  id BIGSERIAL PRIMARY KEY,
+  acr_id VARCHAR(255),
+  title VARCHAR(255) NOT NULL,
+  artists VARCHAR(255) NOT NULL,
+  time TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+  source_url VARCHAR(255),
+  detail_url VARCHAR(255),
+  imported_at TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now(),
+  CONSTRAINT uk_aha_music_history_recognition UNIQUE (title, artists, time)
+);
+
+-- Seed the history with the recognitions that were kept so far
+INSERT INTO aha_music_history (acr_id, title, artists, time, source_url, detail_url)
+SELECT acr_id, title, artists, time, source_url, detail_url
+FROM aha_music
+WHERE time IS NOT NULL
+ON CONFLICT DO NOTHING;
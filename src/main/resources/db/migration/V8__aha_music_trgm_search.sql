@@ -0,0 +1,15 @@
+-- Trigram indexes for substring and fuzzy search over titles and artists. pg_trgm needs to be
+-- installable by the migration user; without it the application searches an in-process n-gram
+-- index instead, so a missing extension is not an error here.
+DO $$
+BEGIN
+  BEGIN
+    CREATE EXTENSION IF NOT EXISTS pg_trgm;
+  EXCEPTION WHEN OTHERS THEN
+    RAISE NOTICE 'pg_trgm is not available (%); search falls back to the in-process index', SQLERRM;
+  END;
+  IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+    CREATE INDEX IF NOT EXISTS idx_aha_music_title_trgm ON aha_music USING gin (title gin_trgm_ops);
+    CREATE INDEX IF NOT EXISTS idx_aha_music_artists_trgm ON aha_music USING gin (artists gin_trgm_ops);
+  END IF;
+END$$;
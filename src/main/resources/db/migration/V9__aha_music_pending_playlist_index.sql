@@ -0,0 +1,5 @@
+-- Songs not yet added to a playlist, newest first. Most of the library has been added over time,
+-- so this partial index covers only the small pending set, and keyset pages over it never touch
+-- the rest of the table. acr_id breaks ties between equal times for the cursor.
+CREATE INDEX IF NOT EXISTS idx_aha_music_pending_time_acr_id ON aha_music (time DESC, acr_id DESC)
+    WHERE added_to_playlist = false;
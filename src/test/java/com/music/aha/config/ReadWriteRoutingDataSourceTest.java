@@ -0,0 +1,79 @@
+package com.music.aha.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReadWriteRoutingDataSourceTest {
+
+	private final DataSource primary = mock(DataSource.class);
+	private final DataSource replica = mock(DataSource.class);
+	private final Connection primaryConnection = mock(Connection.class);
+	private final Connection replicaConnection = mock(Connection.class);
+
+	@BeforeEach
+	void connect() throws SQLException {
+		when(primary.getConnection()).thenReturn(primaryConnection);
+		when(replica.getConnection()).thenReturn(replicaConnection);
+	}
+
+	@Test
+	void readOnlyTransactionGoesToTheReplica() {
+		ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, Duration.ofSeconds(30));
+
+		assertSame(replicaConnection, connectionUsedBy(routing, true));
+	}
+
+	@Test
+	void writesGoToThePrimary() throws SQLException {
+		ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, Duration.ofSeconds(30));
+
+		assertSame(primaryConnection, connectionUsedBy(routing, false));
+		// Outside any transaction too
+		assertSame(primaryConnection, routing.getConnection());
+		verify(replica, never()).getConnection();
+	}
+
+	@Test
+	void replicaFailureFallsBackToThePrimaryUntilTheRetryIsDue() throws SQLException {
+		when(replica.getConnection()).thenThrow(new SQLException("Connection refused", "08001"));
+		ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, Duration.ofHours(1));
+
+		assertSame(primaryConnection, connectionUsedBy(routing, true));
+		// Skipped while it is considered down instead of costing every read a failed connect
+		assertSame(primaryConnection, connectionUsedBy(routing, true));
+		verify(replica, times(1)).getConnection();
+	}
+
+	@Test
+	void replicaIsUsedAgainOnceItRecovers() throws SQLException {
+		when(replica.getConnection())
+				.thenThrow(new SQLException("Connection refused", "08001"))
+				.thenReturn(replicaConnection);
+		ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, Duration.ZERO);
+
+		assertSame(primaryConnection, connectionUsedBy(routing, true));
+		assertSame(replicaConnection, connectionUsedBy(routing, true));
+	}
+
+	// Wired as in DataSourceConfig: the route is only chosen when the transaction first touches the connection
+	private static Connection connectionUsedBy(ReadWriteRoutingDataSource routing, boolean readOnly) {
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+		TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		transaction.setReadOnly(readOnly);
+		return transaction.execute(status ->
+				((ConnectionProxy) DataSourceUtils.getConnection(dataSource)).getTargetConnection());
+	}
+}
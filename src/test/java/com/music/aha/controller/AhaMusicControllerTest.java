@@ -0,0 +1,56 @@
+package com.music.aha.controller;
+
+import com.music.aha.repository.AhaMusicRepository;
+import com.music.aha.repository.RecognitionRepository;
+import com.music.aha.service.AhaMusicService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AhaMusicControllerTest {
+
+	private final AhaMusicRepository repository = mock(AhaMusicRepository.class);
+	private final RecognitionRepository recognitionRepository = mock(RecognitionRepository.class);
+	private MockMvc mvc;
+
+	@BeforeEach
+	void setUp() {
+		AhaMusicService musicService = new AhaMusicService();
+		ReflectionTestUtils.setField(musicService, "repository", repository);
+		ReflectionTestUtils.setField(musicService, "recognitionRepository", recognitionRepository);
+		AhaMusicController controller = new AhaMusicController();
+		ReflectionTestUtils.setField(controller, "musicService", musicService);
+		mvc = MockMvcBuilders.standaloneSetup(controller).build();
+	}
+
+	@Test
+	void tamperedLibraryCursorIsABadRequest() throws Exception {
+		// "garbage|acr1", and a cursor that is not base64 at all
+		for (String path : new String[] { "/api/music/scroll", "/api/music/available-for-playlist" }) {
+			for (String cursor : new String[] { "Z2FyYmFnZXxhY3Ix", "%%%" }) {
+				mvc.perform(get(path).param("cursor", cursor))
+						.andExpect(status().isBadRequest())
+						.andExpect(jsonPath("$.error").value("Invalid cursor"));
+			}
+		}
+		verifyNoInteractions(repository);
+	}
+
+	@Test
+	void tamperedRecognitionsCursorIsABadRequest() throws Exception {
+		// "2024-02-01T10:00|acr1": a library cursor, whose key is not a history id
+		mvc.perform(get("/api/music/recognitions")
+						.param("from", "2024-01-01").param("to", "2024-03-01")
+						.param("cursor", "MjAyNC0wMi0wMVQxMDowMHxhY3Ix"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.error").value("Invalid cursor"));
+		verifyNoInteractions(recognitionRepository);
+	}
+}
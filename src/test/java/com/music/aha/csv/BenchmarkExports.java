@@ -0,0 +1,41 @@
+package com.music.aha.csv;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Synthetic aha-music exports for the CSV benchmarks: quoted titles and artists with embedded
+ * commas, about one song per five rows, times spread over 2023. About 165 bytes per row.
+ */
+final class BenchmarkExports {
+
+	private BenchmarkExports() {
+	}
+
+	// -Daha.benchmark.rows, 1,000,000 by default (a 165 MB file)
+	static int rows() {
+		return Integer.getInteger("aha.benchmark.rows", 1_000_000);
+	}
+
+	static Path generate(Path dir, int rows) throws IOException {
+		Path file = dir.resolve("aha-music-export_2024-01-01.csv");
+		Random random = new Random(42);
+		int songs = Math.max(1, rows / 5);
+		try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			out.write("ACRID,Title,Artists,Time,Source URL,Detail URL\n");
+			for (int i = 0; i < rows; i++) {
+				int song = random.nextInt(songs);
+				out.write("acr" + song + ",\"Song " + song + ", Part II\",\"Artist " + (song % 997) + ", Feat. X\","
+						+ String.format("2023-%02d-%02d %02d:%02d:%02d", 1 + random.nextInt(12), 1 + random.nextInt(28),
+								random.nextInt(24), random.nextInt(60), random.nextInt(60))
+						+ ",https://www.youtube.com/results?search_query=song+" + song
+						+ ",https://aha-music.com/track/" + song + "\n");
+			}
+		}
+		return file;
+	}
+}
@@ -0,0 +1,81 @@
+package com.music.aha.csv;
+
+import com.music.aha.model.AhaMusic;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A full-import parse (CsvReader, AhaMusicCsv.read, keepLatest) of the same export as a plain
+ * .csv, a .csv.gz and a .zip, each opened through AhaMusicCsv.openStream so the compressed ones
+ * are inflated on the read-ahead thread. Prints rows per second for three rounds of each, and the
+ * number of processors, which decides whether inflating overlaps with parsing.
+ */
+@Tag("benchmark")
+class CompressedExportBenchmark {
+
+	private static final int ROUNDS = 3;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void plainAgainstGzipAndZip() throws IOException {
+		int rows = BenchmarkExports.rows();
+		Path csv = BenchmarkExports.generate(dir, rows);
+		Path gz = dir.resolve("aha-music-export_2024-01-01.csv.gz");
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz), 64 * 1024)) {
+			Files.copy(csv, out);
+		}
+		Path zip = dir.resolve("aha-music-export_2024-01-01.zip");
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+			out.putNextEntry(new ZipEntry(csv.getFileName().toString()));
+			Files.copy(csv, out);
+			out.closeEntry();
+		}
+		System.out.printf("CompressedExportBenchmark: %,d rows, %d processors%n",
+				rows, Runtime.getRuntime().availableProcessors());
+
+		for (int round = 1; round <= ROUNDS; round++) {
+			for (Path file : List.of(csv, gz, zip)) {
+				long start = System.nanoTime();
+				int songs = parse(file);
+				long nanos = System.nanoTime() - start;
+				assertTrue(songs > 0);
+				System.out.printf("round %d: %-8s %,12d bytes  %,.0f rows/s (%.2f s)%n", round,
+						file.getFileName().toString().substring(file.getFileName().toString().indexOf('.')),
+						Files.size(file), rows / (nanos / 1e9), nanos / 1e9);
+			}
+		}
+	}
+
+	private static int parse(Path file) throws IOException {
+		Map<UUID, AhaMusic> latest = new HashMap<>();
+		try (CsvReader csv = new CsvReader(new InputStreamReader(AhaMusicCsv.openStream(file), StandardCharsets.UTF_8))) {
+			csv.next();
+			while (csv.next()) {
+				AhaMusic music = AhaMusicCsv.read(csv);
+				if (music != null) {
+					AhaMusicCsv.keepLatest(latest, music);
+				}
+			}
+		}
+		return latest.size();
+	}
+}
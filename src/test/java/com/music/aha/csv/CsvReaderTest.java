@@ -0,0 +1,66 @@
+package com.music.aha.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+	@Test
+	void readsPlainAndQuotedFields() throws IOException {
+		CsvReader csv = new CsvReader(new StringReader(
+				"id,title\r\n" +
+				"a1,\"Hello, World\"\r\n" +
+				"a2,\"She said \"\"hi\"\"\"\n"));
+
+		assertTrue(csv.next());
+		assertEquals("title", csv.getString(1));
+
+		assertTrue(csv.next());
+		assertEquals(2, csv.fieldCount());
+		assertEquals("a1", csv.getString(0));
+		assertEquals("Hello, World", csv.getString(1));
+
+		assertTrue(csv.next());
+		assertEquals("She said \"hi\"", csv.getString(1));
+
+		assertFalse(csv.next());
+	}
+
+	@Test
+	void keepsLineBreaksInsideQuotedFields() throws IOException {
+		CsvReader csv = new CsvReader(new StringReader("x,\"line one\nline two\",y\nz,,"), 4);
+
+		assertTrue(csv.next());
+		assertEquals(3, csv.fieldCount());
+		assertEquals("line one\nline two", csv.getString(1));
+		assertEquals("y", csv.getString(2));
+
+		assertTrue(csv.next());
+		assertEquals(3, csv.fieldCount());
+		assertEquals("", csv.getString(1));
+		assertEquals("", csv.getString(2));
+
+		assertFalse(csv.next());
+	}
+
+	@Test
+	void parsesExportTimestamps() throws IOException {
+		CsvReader csv = new CsvReader(new StringReader("2024-03-05 07:08:09,2024-3-5 7:08:09\n"));
+
+		assertTrue(csv.next());
+		assertEquals(LocalDateTime.of(2024, 3, 5, 7, 8, 9), csv.getDateTime(0));
+		assertThrows(java.time.format.DateTimeParseException.class, () -> csv.getDateTime(1));
+	}
+
+	@Test
+	void failsOnUnterminatedQuote() {
+		CsvReader csv = new CsvReader(new StringReader("a,\"open\n"));
+
+		assertThrows(IOException.class, csv::next);
+	}
+}
@@ -0,0 +1,134 @@
+package com.music.aha.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartInputStreamTest {
+
+	private static final String BOUNDARY = "----formdata7MA4YWxk";
+	private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+
+	// Contains a line break followed by most of the delimiter, which must not end the part
+	private static final String CSV = "ACRID,Title\r\nacr1,\"Hello\r\n--" + BOUNDARY.substring(0, 10) + "\"\r\n";
+
+	@Test
+	void readsFilePartWhenDelimiterIsSplitAcrossReads() throws IOException {
+		String body = "--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"file\"; filename=\"aha-music-export_2024-01-01.csv\"\r\n" +
+				"Content-Type: text/csv\r\n" +
+				"\r\n" +
+				CSV + "\r\n" +
+				"--" + BOUNDARY + "--\r\n";
+		// Every chunk size up to past the delimiter length puts a read boundary inside it somewhere
+		for (int chunk = 1; chunk <= BOUNDARY.length() + 8; chunk++) {
+			try (MultipartInputStream in = MultipartInputStream.openFilePart(chunked(body, chunk), CONTENT_TYPE)) {
+				assertEquals("aha-music-export_2024-01-01.csv", in.getFileName());
+				assertEquals(CSV, readAll(in), "chunk size " + chunk);
+				assertEquals(-1, in.read());
+			}
+		}
+	}
+
+	@Test
+	void skipsPreambleAndFormFieldsBeforeFilePart() throws IOException {
+		String body = "This is a preamble and is ignored.\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"dryRun\"\r\n" +
+				"\r\n" +
+				"true\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"content-disposition: form-data; name=\"note\"\r\n" +
+				"\r\n" +
+				"two\r\nlines\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Type: text/csv\r\n" +
+				"Content-Disposition: form-data; name=\"file\"; filename=\"export.csv\"\r\n" +
+				"\r\n" +
+				CSV + "\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"after\"\r\n" +
+				"\r\n" +
+				"never read\r\n" +
+				"--" + BOUNDARY + "--\r\n";
+		try (MultipartInputStream in = MultipartInputStream.openFilePart(chunked(body, 7), CONTENT_TYPE)) {
+			assertEquals("export.csv", in.getFileName());
+			assertEquals(CSV, readAll(in));
+		}
+	}
+
+	@Test
+	void rejectsBodyWithoutFilePart() {
+		String body = "--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"dryRun\"\r\n" +
+				"\r\n" +
+				"true\r\n" +
+				"--" + BOUNDARY + "--\r\n";
+		IOException e = assertThrows(IOException.class,
+				() -> MultipartInputStream.openFilePart(chunked(body, 5), CONTENT_TYPE));
+		assertEquals("No file part found in multipart body", e.getMessage());
+	}
+
+	@Test
+	void rejectsOverlongPartHeader() {
+		String body = "--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"file\"; filename=\"" + "x".repeat(20_000) + ".csv\"\r\n" +
+				"\r\n" +
+				CSV + "\r\n" +
+				"--" + BOUNDARY + "--\r\n";
+		// Small reads hit the limit before the line end arrives, a single large one brings both at once
+		for (int chunk : new int[] { 4096, 1 << 20 }) {
+			IOException e = assertThrows(IOException.class,
+					() -> MultipartInputStream.openFilePart(chunked(body, chunk), CONTENT_TYPE));
+			assertEquals("Multipart header line too long", e.getMessage());
+		}
+	}
+
+	@Test
+	void rejectsBodyTruncatedInsideFilePart() throws IOException {
+		String body = "--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"file\"; filename=\"export.csv\"\r\n" +
+				"\r\n" +
+				CSV + "\r\n" +
+				"--" + BOUNDARY.substring(0, 5);
+		try (MultipartInputStream in = MultipartInputStream.openFilePart(chunked(body, 3), CONTENT_TYPE)) {
+			IOException e = assertThrows(IOException.class, () -> readAll(in));
+			assertEquals("Multipart body ended inside the file part", e.getMessage());
+		}
+	}
+
+	@Test
+	void rejectsBodyTruncatedInsidePartHeaders() {
+		String body = "--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"file\"; filename=\"exp";
+		IOException e = assertThrows(IOException.class,
+				() -> MultipartInputStream.openFilePart(chunked(body, 3), CONTENT_TYPE));
+		assertEquals("Unexpected end of multipart headers", e.getMessage());
+	}
+
+	@Test
+	void rejectsContentTypeWithoutBoundary() {
+		IOException e = assertThrows(IOException.class,
+				() -> MultipartInputStream.openFilePart(chunked("", 1), "multipart/form-data"));
+		assertEquals("Missing multipart boundary in Content-Type", e.getMessage());
+	}
+
+	private static String readAll(InputStream in) throws IOException {
+		return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+	}
+
+	// Hands out at most chunk bytes per read, as a network stream may
+	private static InputStream chunked(String body, int chunk) {
+		return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)) {
+			@Override
+			public synchronized int read(byte[] bytes, int offset, int length) {
+				return super.read(bytes, offset, Math.min(length, chunk));
+			}
+		};
+	}
+}
@@ -0,0 +1,181 @@
+package com.music.aha.csv;
+
+import com.music.aha.model.AhaMusic;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelParseTest {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void parallelMatchesSequentialWhenCutsFallInsideQuotes() throws IOException {
+		Path file = writeExport(dir.resolve("aha-music-export_2024-01-01.csv"), 3000);
+		LongAdder sequentialRows = new LongAdder();
+		LongAdder sequentialMalformed = new LongAdder();
+		Map<UUID, AhaMusic> expected = parseSequentially(file, sequentialRows, sequentialMalformed);
+
+		for (int parallelism : new int[] { 1, 2, 3, 4, 7, 8, 16, 31 }) {
+			LongAdder rows = new LongAdder();
+			LongAdder malformed = new LongAdder();
+			Map<UUID, AhaMusic> actual = AhaMusicCsv.parseLatest(file, parallelism, rows, malformed);
+
+			assertEquals(sequentialRows.sum(), rows.sum(), "rows at parallelism " + parallelism);
+			assertEquals(sequentialMalformed.sum(), malformed.sum(), "malformed at parallelism " + parallelism);
+			assertEquals(expected.size(), actual.size(), "songs at parallelism " + parallelism);
+			for (Map.Entry<UUID, AhaMusic> entry : expected.entrySet()) {
+				AhaMusic want = entry.getValue();
+				AhaMusic got = actual.get(entry.getKey());
+				assertNotNull(got);
+				// acr_id tells apart rows with equal times, so this also checks that the earlier row wins ties
+				assertEquals(want.getAcrId(), got.getAcrId(), "acr_id at parallelism " + parallelism);
+				assertEquals(want.getTitle(), got.getTitle());
+				assertEquals(want.getArtists(), got.getArtists());
+				assertEquals(want.getTime(), got.getTime());
+				assertEquals(want.getDetailUrl(), got.getDetailUrl());
+			}
+		}
+	}
+
+	@Test
+	@Timeout(30)
+	void failingSegmentStopsTheOthersBeforeTheFailureIsThrown() throws IOException {
+		Path file = writeExport(dir.resolve("aha-music-export_2024-01-02.csv"), 3000);
+		IllegalStateException failure = new IllegalStateException("history append failed");
+		AtomicInteger batches = new AtomicInteger();
+		AtomicInteger inSink = new AtomicInteger();
+		Consumer<List<AhaMusic>> sink = batch -> {
+			inSink.incrementAndGet();
+			try {
+				if (batches.incrementAndGet() == 1) {
+					throw failure;
+				}
+				// A slow append still running on another thread when the first one fails
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				inSink.decrementAndGet();
+			}
+		};
+
+		IllegalStateException thrown = assertThrows(IllegalStateException.class,
+				() -> AhaMusicCsv.parseLatest(List.of(file), 4, new LongAdder(), new LongAdder(), sink, 10));
+
+		assertSame(failure, thrown);
+		assertEquals(0, inSink.get(), "a segment was still writing after parseLatest returned");
+		// About 300 batches when every segment runs to the end
+		assertTrue(batches.get() < 100, "segments kept parsing after the failure: " + batches.get());
+	}
+
+	@Test
+	void segmentsAreContiguousAndStartOnRecords() throws IOException {
+		Path file = writeExport(dir.resolve("export.csv"), 500);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			for (int count = 2; count <= 40; count++) {
+				List<CsvFileSegmenter.Segment> segments = CsvFileSegmenter.split(channel, count, executor);
+				assertEquals(0, segments.get(0).getStart());
+				assertEquals(channel.size(), segments.get(segments.size() - 1).getEnd());
+				for (int i = 1; i < segments.size(); i++) {
+					assertEquals(segments.get(i - 1).getEnd(), segments.get(i).getStart());
+				}
+				for (CsvFileSegmenter.Segment segment : segments) {
+					if (segment.getStart() == 0) {
+						continue;
+					}
+					try (Reader reader = CsvFileSegmenter.open(channel, segment)) {
+						CsvReader csv = new CsvReader(reader);
+						while (csv.next()) {
+							// Well-formed rows have every column, the deliberately malformed ones three
+							assertTrue(csv.fieldCount() == AhaMusicCsv.COLUMN_COUNT || csv.fieldCount() == 3);
+							assertTrue(csv.getString(AhaMusicCsv.COL_ACR_ID).startsWith("acr"),
+									"segment at " + segment.getStart() + " does not start on a record");
+						}
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void lastRecordEndStopsBeforeARecordStillBeingWritten() throws IOException {
+		String complete = "ACRID,Title\nacr1,\"one\ntwo\"\r\n";
+		Path file = dir.resolve("growing.csv");
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.READ)) {
+			Files.writeString(file, complete + "acr2,\"half a line\nstill quoted");
+			assertEquals(complete.length(), CsvFileSegmenter.lastRecordEnd(channel, 0, channel.size()));
+			// Nothing complete past the offset: resuming there imports nothing
+			assertEquals(complete.length(), CsvFileSegmenter.lastRecordEnd(channel, complete.length(), channel.size()));
+
+			Files.writeString(file, complete + "acr2,\"half a line\nstill quoted\"\nacr3,no newline yet");
+			assertEquals(complete.length() + 32, CsvFileSegmenter.lastRecordEnd(channel, complete.length(), channel.size()));
+		}
+	}
+
+	private static Map<UUID, AhaMusic> parseSequentially(Path file, LongAdder rows, LongAdder malformed)
+			throws IOException {
+		Map<UUID, AhaMusic> latest = new HashMap<>();
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			CsvReader csv = new CsvReader(reader);
+			csv.next();
+			while (csv.next()) {
+				rows.increment();
+				AhaMusic music = AhaMusicCsv.read(csv);
+				if (music == null) {
+					malformed.increment();
+				} else {
+					AhaMusicCsv.keepLatest(latest, music);
+				}
+			}
+		}
+		return latest;
+	}
+
+	// Most bytes sit inside quoted fields with commas, doubled quotes and line breaks (LF and CRLF),
+	// so segment cuts at arbitrary offsets almost always land inside quotes. Songs repeat with equal
+	// times to exercise ties across segments, and every 97th row is malformed.
+	private static Path writeExport(Path file, int rows) throws IOException {
+		StringBuilder csv = new StringBuilder("ACRID,Title,Artists,Time,Source URL,Detail URL\n");
+		for (int i = 0; i < rows; i++) {
+			int song = i % 211;
+			String note = "line one, with a comma\nline \"\"two\"\"\r\nline three ".repeat(1 + song % 3);
+			if (i % 97 == 0) {
+				csv.append("acr").append(i).append(",\"").append(note).append("\",broken\n");
+				continue;
+			}
+			csv.append("acr").append(i).append(',')
+					.append("\"Song ").append(song).append(", ").append(note).append("\",")
+					.append("\"Artist ").append(song % 37).append("\nfeat. \"\"X\"\"\",")
+					.append(String.format("2024-01-%02d %02d:00:00", 1 + i % 28 / 7, song % 24)).append(',')
+					.append("https://example.com/s/").append(i).append(',')
+					.append("\"https://example.com/d/").append(i).append("?a=1,b=2\"\n");
+		}
+		Files.writeString(file, csv, StandardCharsets.UTF_8);
+		return file;
+	}
+}
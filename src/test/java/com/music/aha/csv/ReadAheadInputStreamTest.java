@@ -0,0 +1,129 @@
+package com.music.aha.csv;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadAheadInputStreamTest {
+
+	@Test
+	void deliversEveryByteInOrder() throws IOException {
+		byte[] data = new byte[10_000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i * 31);
+		}
+		try (ReadAheadInputStream in = new ReadAheadInputStream(new ByteArrayInputStream(data), 64, 2)) {
+			assertArrayEquals(data, in.readAllBytes());
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	void producerFailureReachesTheReaderAfterTheBlocksBeforeIt() throws Exception {
+		IOException failure = new IOException("corrupt gzip trailer");
+		TrackingSource source = new TrackingSource(96, failure);
+		try (ReadAheadInputStream in = new ReadAheadInputStream(source, 16, 2)) {
+			assertEquals(96, in.readNBytes(96).length);
+
+			IOException thrown = assertThrows(IOException.class, in::read);
+			assertSame(failure, thrown);
+		}
+		assertTrue(source.closed.await(5, TimeUnit.SECONDS), "source not closed after failure");
+	}
+
+	@Test
+	@Timeout(10)
+	void uncheckedSourceFailureEndsTheStreamInsteadOfHanging() throws Exception {
+		IllegalStateException failure = new IllegalStateException("inflater state corrupted");
+		TrackingSource source = new TrackingSource(32, failure);
+		try (ReadAheadInputStream in = new ReadAheadInputStream(source, 16, 2)) {
+			assertEquals(32, in.readNBytes(32).length);
+
+			IllegalStateException thrown = assertThrows(IllegalStateException.class, in::read);
+			assertSame(failure, thrown);
+			// Stays at the end instead of waiting for blocks that will never come
+			assertEquals(-1, in.read());
+		}
+		assertTrue(source.closed.await(5, TimeUnit.SECONDS), "source not closed after failure");
+	}
+
+	@Test
+	void closeMidStreamStopsTheProducerAndClosesTheSource() throws Exception {
+		// Never ends, so the producer only stops because the stream was closed
+		TrackingSource source = new TrackingSource(Long.MAX_VALUE, null);
+		ReadAheadInputStream in = new ReadAheadInputStream(source, 16, 2);
+		assertEquals(16, in.readNBytes(16).length);
+		// Let the producer fill the queue and block on it
+		assertTrue(source.waitForBytes(64, 5, TimeUnit.SECONDS));
+
+		in.close();
+
+		assertTrue(source.closed.await(5, TimeUnit.SECONDS), "source not closed");
+		source.producer.join(5_000);
+		assertFalse(source.producer.isAlive(), "producer thread still running");
+	}
+
+	// Yields bytes up to a limit, then throws the given failure (or reports end of stream)
+	private static class TrackingSource extends InputStream {
+		private final long limit;
+		private final Exception failure;
+		private final CountDownLatch closed = new CountDownLatch(1);
+		private volatile Thread producer;
+		private long served;
+
+		TrackingSource(long limit, Exception failure) {
+			this.limit = limit;
+			this.failure = failure;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return read(one, 0, 1) == 1 ? one[0] & 0xFF : -1;
+		}
+
+		@Override
+		public synchronized int read(byte[] bytes, int offset, int length) throws IOException {
+			producer = Thread.currentThread();
+			if (served >= limit) {
+				if (failure instanceof IOException e) {
+					throw e;
+				}
+				if (failure != null) {
+					throw (RuntimeException) failure;
+				}
+				return -1;
+			}
+			int n = (int) Math.min(length, limit - served);
+			Arrays.fill(bytes, offset, offset + n, (byte) 'x');
+			served += n;
+			notifyAll();
+			return n;
+		}
+
+		synchronized boolean waitForBytes(long count, long timeout, TimeUnit unit) throws InterruptedException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while (served < count) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+			return true;
+		}
+
+		@Override
+		public void close() {
+			closed.countDown();
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.music.aha.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongKeyTest {
+
+	@Test
+	void foldsCaseAndWhitespace() {
+		assertEquals("song title", SongKey.normalize("  Song \t\r\n Title  "));
+		// No-break space and control characters count as whitespace
+		assertEquals("song title", SongKey.normalize("Song\u00A0\u0001Title"));
+		assertEquals("title", SongKey.normalize("TITLE"));
+		assertEquals("", SongKey.normalize(null));
+		assertEquals("", SongKey.normalize(" \t "));
+	}
+
+	@Test
+	void keepsAccentsAndPunctuation() {
+		assertEquals("café del mar", SongKey.normalize("Café Del Mar"));
+		assertEquals("ac/dc - t.n.t.", SongKey.normalize("AC/DC - T.N.T."));
+	}
+
+	// Keys are stored in song_key columns: changing any of these breaks every existing row
+	@Test
+	void keysArePinned() {
+		assertEquals(UUID.fromString("83112070-4942-611b-98ff-92e04ce63045"), SongKey.of("Bohemian Rhapsody", "Queen"));
+		assertEquals(UUID.fromString("e8bf3695-061f-cd5e-28b3-08d40dfba286"), SongKey.of("Café del Mar", "Energy 52"));
+		assertEquals(UUID.fromString("ad1e41ce-bd43-e64a-f1a2-8d4d70dc9e30"), SongKey.of(null, null));
+	}
+
+	@Test
+	void foldedSpellingsShareAKey() {
+		assertEquals(SongKey.of("Bohemian Rhapsody", "Queen"), SongKey.of("  bohemian\trhapsody ", "QUEEN"));
+		assertEquals(SongKey.of(null, null), SongKey.of("", " "));
+	}
+
+	@Test
+	void separatorKeepsFieldsApart() {
+		assertEquals(UUID.fromString("a207ee51-25ce-066a-d5b7-68f33988dfd7"), SongKey.of("a b", "c"));
+		assertNotEquals(SongKey.of("a b", "c"), SongKey.of("a", "b c"));
+	}
+}
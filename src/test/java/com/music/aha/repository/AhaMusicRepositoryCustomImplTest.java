@@ -0,0 +1,67 @@
+package com.music.aha.repository;
+
+import com.music.aha.model.AhaMusic;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AhaMusicRepositoryCustomImplTest {
+
+	@Test
+	void artistKeysAreFoldedInJavaOncePerSpelling() {
+		Map<String, String> keys = AhaMusicRepositoryCustomImpl.artistKeys(List.of(
+				music("The  Beatles "),
+				music("the beatles"),
+				// A no-break space and a trailing tab, which the SQL fold (btrim and \s) kept apart
+				music("The\u00A0Beatles\t"),
+				music("the beatles"),
+				music(null)));
+
+		assertEquals(Map.of(
+				"The  Beatles ", "the beatles",
+				"the beatles", "the beatles",
+				"The\u00A0Beatles\t", "the beatles"), keys);
+	}
+
+	@Test
+	void csvExportLeavesOutRowsWithoutATime() throws Exception {
+		CopyManager copyManager = mock(CopyManager.class);
+		PGConnection pgConnection = mock(PGConnection.class);
+		when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+		Connection connection = mock(Connection.class);
+		when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(copyManager.copyOut(anyString(), any(OutputStream.class))).thenReturn(2L);
+		AhaMusicRepositoryCustomImpl repository = new AhaMusicRepositoryCustomImpl(new JdbcTemplate(dataSource));
+		OutputStream out = new ByteArrayOutputStream();
+
+		assertEquals(2, repository.copyOutCsv(out, false));
+		assertEquals(2, repository.copyOutCsv(out, true));
+
+		ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+		verify(copyManager, times(2)).copyOut(sql.capture(), same(out));
+		assertTrue(sql.getAllValues().get(0).contains(" FROM aha_music WHERE time IS NOT NULL)"), sql.getAllValues().get(0));
+		assertTrue(sql.getAllValues().get(1).contains(" FROM aha_music_history WHERE time IS NOT NULL)"), sql.getAllValues().get(1));
+	}
+
+	private static AhaMusic music(String artists) {
+		AhaMusic music = new AhaMusic();
+		music.setTitle("Title");
+		music.setArtists(artists);
+		return music;
+	}
+}
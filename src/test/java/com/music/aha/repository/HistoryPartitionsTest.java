@@ -0,0 +1,32 @@
+package com.music.aha.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryPartitionsTest {
+
+	@Test
+	void namesAndBoundsMonthlyPartitions() {
+		assertEquals("aha_music_history_2023_12", HistoryPartitions.name(YearMonth.of(2023, 12)));
+		assertEquals("CREATE TABLE IF NOT EXISTS aha_music_history_2023_12 PARTITION OF aha_music_history " +
+				"FOR VALUES FROM ('2023-12-01') TO ('2024-01-01')", HistoryPartitions.createSql(YearMonth.of(2023, 12)));
+	}
+
+	@Test
+	void recognisesRowsWithoutAPartition() {
+		SQLException missing = new SQLException(
+				"ERROR: no partition of relation \"aha_music_history\" found for row", "23514");
+		// As thrown by JdbcTemplate: the driver's exception is the cause
+		assertTrue(HistoryPartitions.isMissingPartition(new RuntimeException("insert failed", missing)));
+
+		assertFalse(HistoryPartitions.isMissingPartition(
+				new RuntimeException(new SQLException("new row violates check constraint \"positive\"", "23514"))));
+		assertFalse(HistoryPartitions.isMissingPartition(
+				new RuntimeException(new SQLException("duplicate key value", "23505"))));
+		assertFalse(HistoryPartitions.isMissingPartition(new IllegalStateException("no SQL cause")));
+	}
+}
@@ -0,0 +1,108 @@
+package com.music.aha.repository;
+
+import com.music.aha.model.AhaMusic;
+import com.music.aha.model.MusicSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+/**
+ * The /all listing read as AhaMusic entities, the way it was served before the MusicSummary
+ * projection, against the projection query it uses now. Prints the mean latency and the bytes
+ * allocated per row by the query and its transaction, excluding JSON serialisation.
+ * <p>
+ * Needs a PostgreSQL migrated by the application and holding a realistic library; nothing is
+ * written to it. Skipped unless {@code -Daha.benchmark.jdbc-url} is set, with
+ * {@code aha.benchmark.username} and {@code aha.benchmark.password} as needed.
+ */
+@Tag("benchmark")
+class ListingProjectionBenchmark {
+
+	private static final int WARMUP = 3;
+	private static final int ROUNDS = 10;
+
+	@Test
+	void entitiesAgainstProjection() {
+		String url = System.getProperty("aha.benchmark.jdbc-url");
+		assumeTrue(url != null, "-Daha.benchmark.jdbc-url is not set");
+		EntityManagerFactory factory = entityManagerFactory(url);
+		try {
+			// Spring Data's finders run read-only: no snapshot is kept and nothing is flushed
+			measure(factory, "entities, read-only transaction", true,
+					em -> em.createQuery("SELECT a FROM AhaMusic a", AhaMusic.class).getResultList());
+			// What a read-write transaction (or no read-only hint) costs: snapshots and a dirty check on flush
+			measure(factory, "entities, read-write transaction", false,
+					em -> em.createQuery("SELECT a FROM AhaMusic a", AhaMusic.class).getResultList());
+			measure(factory, "MusicSummary projection", true, em -> em.createQuery(
+					"SELECT new com.music.aha.model.MusicSummary(a.acrId, a.title, a.artists, a.time, a.addedToPlaylist) " +
+					"FROM AhaMusic a", MusicSummary.class).getResultList());
+		} finally {
+			factory.close();
+		}
+	}
+
+	private static void measure(EntityManagerFactory factory, String name, boolean readOnly,
+								Function<EntityManager, List<?>> query) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long nanos = 0;
+		long bytes = 0;
+		int rows = 0;
+		for (int round = 0; round < WARMUP + ROUNDS; round++) {
+			long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			rows = read(factory, readOnly, query);
+			if (round >= WARMUP) {
+				nanos += System.nanoTime() - start;
+				bytes += threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+			}
+		}
+		assertTrue(rows > 0, "aha_music is empty");
+		System.out.printf("%-34s %,d rows  %8.1f ms  %,8d bytes/row%n",
+				name, rows, nanos / 1e6 / ROUNDS, bytes / ROUNDS / rows);
+	}
+
+	// One request: a transaction around the query, with the results held until it ends
+	private static int read(EntityManagerFactory factory, boolean readOnly, Function<EntityManager, List<?>> query) {
+		EntityManager em = factory.createEntityManager();
+		try {
+			if (readOnly) {
+				Session session = em.unwrap(Session.class);
+				session.setDefaultReadOnly(true);
+				session.setHibernateFlushMode(FlushMode.MANUAL);
+			}
+			em.getTransaction().begin();
+			int rows = query.apply(em).size();
+			em.getTransaction().commit();
+			return rows;
+		} finally {
+			em.close();
+		}
+	}
+
+	private static EntityManagerFactory entityManagerFactory(String url) {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(url,
+				System.getProperty("aha.benchmark.username", "postgres"), System.getProperty("aha.benchmark.password", ""));
+		LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+		factory.setDataSource(dataSource);
+		factory.setPackagesToScan("com.music.aha.model");
+		factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+		factory.setJpaPropertyMap(Map.of("hibernate.hbm2ddl.auto", "none"));
+		factory.afterPropertiesSet();
+		return factory.getObject();
+	}
+}
@@ -0,0 +1,228 @@
+package com.music.aha.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.music.aha.model.AhaMusic;
+import com.music.aha.model.MusicExportRecord;
+import com.music.aha.model.MusicSummary;
+import com.music.aha.repository.AhaMusicRepository;
+import com.music.aha.repository.AhaMusicRepositoryCustom.UpsertResult;
+import com.music.aha.repository.RecognitionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AhaMusicServiceTest {
+
+	private static final String HEADER = "ACRID,Title,Artists,Time,Source URL,Detail URL\n";
+
+	private final AhaMusicRepository repository = mock(AhaMusicRepository.class);
+	private final RecognitionRepository recognitionRepository = mock(RecognitionRepository.class);
+	private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+	private final AhaMusicService service = new AhaMusicService();
+	// Every batch handed to appendHistory, in call order
+	private final List<List<AhaMusic>> appended = new ArrayList<>();
+
+	@BeforeEach
+	void wire() {
+		ReflectionTestUtils.setField(service, "repository", repository);
+		ReflectionTestUtils.setField(service, "recognitionRepository", recognitionRepository);
+		ReflectionTestUtils.setField(service, "songCache", mock(SongCache.class));
+		ReflectionTestUtils.setField(service, "transactionTemplate", new TransactionTemplate(transactionManager));
+		ReflectionTestUtils.setField(service, "chunkSize", 100);
+
+		when(repository.ensureHistoryPartitions(anyCollection())).thenReturn(Set.of());
+		when(repository.appendHistory(anyCollection())).thenAnswer(invocation -> {
+			Collection<AhaMusic> batch = invocation.getArgument(0);
+			appended.add(new ArrayList<>(batch));
+			return batch.size();
+		});
+		when(repository.upsertLatest(anyCollection())).thenAnswer(invocation ->
+				new UpsertResult(invocation.<Collection<?>>getArgument(0).size(), 0));
+	}
+
+	@Test
+	void recognitionsFromArchivedMonthsUpdateTheLibraryButNotTheHistory() throws IOException {
+		when(repository.ensureHistoryPartitions(anyCollection())).thenReturn(Set.of(YearMonth.of(2023, 1)));
+
+		ImportReport report = importCsv(
+				"acr1,Old,Artist,2023-01-15 10:00:00,s,d\n" +
+				"acr2,New,Artist,2024-02-01 10:00:00,s,d\n" +
+				"acr3,Also Old,Artist,2023-01-31 23:59:59,s,d\n");
+
+		assertEquals(List.of(List.of("acr2")), acrIds(appended));
+		assertEquals(1, report.getHistoryAppended());
+		assertEquals(2, report.getHistoryArchivedSkipped());
+		assertEquals(3, report.getInserted());
+	}
+
+	@Test
+	void monthArchivedWhileRunningIsSkippedAfterOneRetry() throws IOException {
+		// The cached partition list still has January: the append fails, then the months are checked again
+		when(repository.ensureHistoryPartitions(anyCollection()))
+				.thenReturn(Set.of())
+				.thenReturn(Set.of(YearMonth.of(2023, 1)));
+		doThrow(new DataIntegrityViolationException("append failed", new SQLException(
+				"ERROR: no partition of relation \"aha_music_history\" found for row", "23514")))
+				.doAnswer(invocation -> {
+					Collection<AhaMusic> batch = invocation.getArgument(0);
+					appended.add(new ArrayList<>(batch));
+					return batch.size();
+				})
+				.when(repository).appendHistory(anyCollection());
+
+		ImportReport report = importCsv(
+				"acr1,Old,Artist,2023-01-15 10:00:00,s,d\n" +
+				"acr2,New,Artist,2024-02-01 10:00:00,s,d\n");
+
+		verify(repository).forgetHistoryPartitions();
+		assertEquals(List.of(List.of("acr2")), acrIds(appended));
+		// Counted once, for the attempt that committed
+		assertEquals(1, report.getHistoryArchivedSkipped());
+		assertEquals(1, report.getHistoryAppended());
+	}
+
+	@Test
+	void reportCountsEachRowUnderExactlyOneOutcome() throws IOException {
+		// The library already has "Known" newer than the file, and "Changed" older
+		when(repository.upsertLatest(anyCollection())).thenAnswer(invocation -> {
+			List<String> titles = invocation.<Collection<AhaMusic>>getArgument(0).stream().map(AhaMusic::getTitle).toList();
+			return new UpsertResult(titles.contains("New") ? 1 : 0, titles.contains("Changed") ? 1 : 0);
+		});
+
+		ImportReport report = importCsv(
+				"acr1,New,Artist,2024-02-01 10:00:00,s,d\n" +
+				"acr2,New,Artist,2024-01-01 10:00:00,s,d\n" +
+				"acr3,Known,Artist,2024-02-01 11:00:00,s,d\n" +
+				"acr4,Changed,Artist,2024-02-01 12:00:00,s,d\n" +
+				"acr5,Bad Time,Artist,yesterday,s,d\n" +
+				"acr6,Short Row\n");
+
+		assertEquals(6, report.getRowsParsed());
+		assertEquals(1, report.getInserted());
+		assertEquals(1, report.getUpdated());
+		// acr2 lost to the newer row in the file, acr3 to the library
+		assertEquals(2, report.getSkippedOlder());
+		assertEquals(2, report.getMalformed());
+		assertEquals(report.getRowsParsed(), report.getInserted() + report.getUpdated()
+				+ report.getSkippedOlder() + report.getMalformed());
+		// Every well-formed row is a recognition, superseded or not
+		assertEquals(4, report.getHistoryAppended());
+	}
+
+	@Test
+	void dryRunCountsLikeARealRunButRollsBackAndLeavesTheHistoryAlone() throws IOException {
+		SimpleTransactionStatus outer = new SimpleTransactionStatus();
+		when(transactionManager.getTransaction(any())).thenReturn(outer);
+		ImportReport report = new ImportReport(true);
+
+		service.importCsvStream(new ByteArrayInputStream((HEADER +
+				"acr1,New,Artist,2024-02-01 10:00:00,s,d\n" +
+				"acr2,New,Artist,2024-01-01 10:00:00,s,d\n" +
+				"acr3,Bad Time,Artist,yesterday,s,d\n").getBytes(StandardCharsets.UTF_8)),
+				"aha-music-export_2024-02-02.csv", report);
+
+		assertEquals(3, report.getRowsParsed());
+		assertEquals(1, report.getInserted());
+		assertEquals(1, report.getSkippedOlder());
+		assertEquals(1, report.getMalformed());
+		assertEquals(0, report.getHistoryAppended());
+		verify(repository, never()).appendHistory(anyCollection());
+		assertTrue(outer.isRollbackOnly());
+	}
+
+	@Test
+	void tamperedCursorsAreRejectedAsInvalidArguments() {
+		String noSeparator = base64("2024-02-01T10:00");
+		String badTime = base64("yesterday|acr1");
+		String badId = base64("2024-02-01T10:00|not-a-number");
+		for (String cursor : List.of("not base64!", noSeparator, badTime)) {
+			assertThrows(IllegalArgumentException.class, () -> service.getMusicSlice(cursor, 20), cursor);
+			assertThrows(IllegalArgumentException.class, () -> service.getAvailableForPlaylist(cursor, 20), cursor);
+		}
+		for (String cursor : List.of("not base64!", noSeparator, badTime, badId)) {
+			assertThrows(IllegalArgumentException.class, () -> service.getRecognitions(
+					LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 3, 1, 0, 0), cursor, 20), cursor);
+		}
+		verifyNoInteractions(recognitionRepository);
+		verify(repository, never()).findNewestBefore(any(), any(), any());
+		verify(repository, never()).findNewestPendingBefore(any(), any(), any());
+	}
+
+	@Test
+	void nextCursorSeeksPastTheLastRecordOfThePage() {
+		LocalDateTime time = LocalDateTime.of(2024, 2, 1, 10, 0);
+		MusicSummary last = new MusicSummary("acr|2", "Title", "Artist", time, false);
+		when(repository.findNewest(any())).thenReturn(new SliceImpl<>(List.of(last), PageRequest.of(0, 1), true));
+		when(repository.findNewestBefore(any(), any(), any())).thenReturn(new SliceImpl<>(List.of()));
+
+		String cursor = service.getMusicSlice(null, 1).getNextCursor();
+		service.getMusicSlice(cursor, 1);
+
+		// The acr_id may itself contain the separator
+		verify(repository).findNewestBefore(time, "acr|2", PageRequest.of(0, 1));
+	}
+
+	@Test
+	void ndjsonExportKeepsEveryColumnOfTheRecord() {
+		ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+				.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		ReflectionTestUtils.setField(service, "objectMapper", objectMapper);
+		UUID songKey = UUID.randomUUID();
+		when(repository.streamAllForExport()).thenReturn(Stream.of(
+				new MusicExportRecord("acr1", "Title", "Artist", songKey, LocalDateTime.of(2024, 2, 1, 10, 0),
+						"https://source", "https://detail", true),
+				new MusicExportRecord("acr2", "Other", "Artist", songKey, null, null, null, false)));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		assertEquals(2, service.exportAllAsNdjson(out));
+
+		assertEquals("{\"acrId\":\"acr1\",\"title\":\"Title\",\"artists\":\"Artist\",\"songKey\":\"" + songKey
+				+ "\",\"time\":\"2024-02-01T10:00:00\",\"sourceUrl\":\"https://source\",\"detailUrl\":\"https://detail\","
+				+ "\"addedToPlaylist\":true}\n"
+				+ "{\"acrId\":\"acr2\",\"title\":\"Other\",\"artists\":\"Artist\",\"songKey\":\"" + songKey
+				+ "\",\"time\":null,\"sourceUrl\":null,\"detailUrl\":null,\"addedToPlaylist\":false}\n",
+				out.toString(StandardCharsets.UTF_8));
+	}
+
+	private ImportReport importCsv(String rows) throws IOException {
+		ImportReport report = new ImportReport();
+		service.importCsvStream(new ByteArrayInputStream((HEADER + rows).getBytes(StandardCharsets.UTF_8)),
+				"aha-music-export_2024-02-02.csv", report);
+		return report;
+	}
+
+	private static String base64(String key) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static List<List<String>> acrIds(List<List<AhaMusic>> batches) {
+		return batches.stream().map(batch -> batch.stream().map(AhaMusic::getAcrId).toList()).toList();
+	}
+}
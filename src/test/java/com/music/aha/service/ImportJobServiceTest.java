@@ -0,0 +1,195 @@
+package com.music.aha.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ImportJobServiceTest {
+
+	private static final File FILE = new File("aha-music-export_2024-02-02.csv");
+
+	private final AhaMusicService musicService = mock(AhaMusicService.class);
+	// A stream is dropped after one second stuck on a single event
+	private final ImportJobService service = new ImportJobService(musicService, 1, 4, 60, 1);
+	private final CountDownLatch proceed = new CountDownLatch(1);
+
+	@AfterEach
+	void shutdown() {
+		proceed.countDown();
+		service.shutdown();
+	}
+
+	@Test
+	@Timeout(10)
+	void completedJobIsStreamedUntilItFinishes() throws Exception {
+		doAnswer(invocation -> {
+			invocation.<ImportReport>getArgument(2).addInserted(3);
+			proceed.await();
+			return null;
+		}).when(musicService).importCsvFile(eq(FILE), eq(ImportMode.FULL), any());
+
+		ImportJob job = service.submit(FILE, ImportMode.FULL, false);
+		RecordingEmitter emitter = new RecordingEmitter();
+		service.stream(job, 20, emitter);
+		emitter.awaitEvent("RUNNING");
+		proceed.countDown();
+
+		emitter.awaitCompleted();
+		assertEquals("COMPLETED", emitter.last());
+		assertEquals(3, job.getReport().getInserted());
+		assertNull(emitter.error);
+	}
+
+	@Test
+	@Timeout(10)
+	void cancelledJobStopsAndIsStreamedAsCancelled() throws Exception {
+		doAnswer(invocation -> {
+			ImportReport report = invocation.getArgument(2);
+			while (!report.isCancelRequested()) {
+				Thread.sleep(10);
+			}
+			throw new ImportCancelledException();
+		}).when(musicService).importCsvFile(eq(FILE), eq(ImportMode.FULL), any());
+
+		ImportJob job = service.submit(FILE, ImportMode.FULL, false);
+		RecordingEmitter emitter = new RecordingEmitter();
+		service.stream(job, 20, emitter);
+		emitter.awaitEvent("RUNNING");
+		assertTrue(service.cancel(job.getId()).isPresent());
+
+		emitter.awaitCompleted();
+		assertEquals("CANCELLED", emitter.last());
+		assertEquals(ImportJob.Status.CANCELLED, job.getStatus());
+	}
+
+	@Test
+	@Timeout(10)
+	void queuedJobCancelledBeforeItStartsNeverRuns() throws Exception {
+		doAnswer(invocation -> {
+			proceed.await();
+			return null;
+		}).when(musicService).importCsvFile(any(), any(), any());
+		ImportJob running = service.submit(FILE, ImportMode.FULL, false);
+		ImportJob queued = service.submit(new File("aha-music-export_2024-02-03.csv"), ImportMode.FULL, false);
+
+		service.cancel(queued.getId());
+		proceed.countDown();
+		RecordingEmitter emitter = new RecordingEmitter();
+		service.stream(queued, 20, emitter);
+
+		emitter.awaitCompleted();
+		assertEquals("CANCELLED", emitter.last());
+		verify(musicService, never()).importCsvFile(eq(new File("aha-music-export_2024-02-03.csv")), any(), any());
+		assertEquals(ImportJob.Status.COMPLETED, awaitFinished(running).getStatus());
+	}
+
+	@Test
+	@Timeout(10)
+	void failureIsStreamedWithItsMessage() throws Exception {
+		doThrow(new IOException("Disk gone")).when(musicService).importCsvFile(eq(FILE), eq(ImportMode.FULL), any());
+
+		ImportJob job = service.submit(FILE, ImportMode.FULL, false);
+		RecordingEmitter emitter = new RecordingEmitter();
+		service.stream(job, 20, emitter);
+
+		emitter.awaitCompleted();
+		assertEquals("FAILED: Disk gone", emitter.last());
+	}
+
+	@Test
+	@Timeout(10)
+	void clientThatStopsReadingDoesNotStallOtherStreams() throws Exception {
+		doAnswer(invocation -> {
+			proceed.await();
+			return null;
+		}).when(musicService).importCsvFile(eq(FILE), eq(ImportMode.FULL), any());
+		ImportJob job = service.submit(FILE, ImportMode.FULL, false);
+
+		CountDownLatch unblock = new CountDownLatch(1);
+		RecordingEmitter stuck = new RecordingEmitter() {
+			@Override
+			public void send(SseEventBuilder builder) throws IOException {
+				try {
+					// A full socket buffer: the write does not return until the client reads again
+					unblock.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.send(builder);
+			}
+		};
+		RecordingEmitter reader = new RecordingEmitter();
+		service.stream(job, 20, stuck);
+		service.stream(job, 20, reader);
+		reader.awaitEvent("RUNNING");
+		proceed.countDown();
+
+		reader.awaitCompleted();
+		assertEquals("COMPLETED", reader.last());
+		// Dropped once it has been stuck for the stall timeout; the error waits for the write to give up
+		Thread.sleep(1200);
+		unblock.countDown();
+		stuck.awaitCompleted();
+		assertInstanceOf(IOException.class, stuck.error);
+	}
+
+	private static ImportJob awaitFinished(ImportJob job) throws InterruptedException {
+		while (!job.isFinished()) {
+			Thread.sleep(10);
+		}
+		return job;
+	}
+
+	// Records the status of every snapshot the client would receive
+	private static class RecordingEmitter extends SseEmitter {
+		final List<String> events = new CopyOnWriteArrayList<>();
+		final CountDownLatch completed = new CountDownLatch(1);
+		volatile Throwable error;
+
+		@Override
+		public void send(SseEventBuilder builder) throws IOException {
+			builder.build().stream()
+					.filter(part -> part.getData() instanceof ImportJob)
+					.map(part -> (ImportJob) part.getData())
+					.forEach(job -> events.add(job.getError() == null
+							? job.getStatus().name() : job.getStatus() + ": " + job.getError()));
+		}
+
+		@Override
+		public void complete() {
+			completed.countDown();
+		}
+
+		@Override
+		public void completeWithError(Throwable ex) {
+			error = ex;
+			completed.countDown();
+		}
+
+		void awaitEvent(String status) throws InterruptedException {
+			while (!events.contains(status)) {
+				Thread.sleep(10);
+			}
+		}
+
+		void awaitCompleted() throws InterruptedException {
+			assertTrue(completed.await(5, TimeUnit.SECONDS));
+		}
+
+		String last() {
+			return events.get(events.size() - 1);
+		}
+	}
+}
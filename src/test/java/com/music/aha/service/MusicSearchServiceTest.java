@@ -0,0 +1,83 @@
+package com.music.aha.service;
+
+import com.music.aha.model.MusicSummary;
+import com.music.aha.repository.AhaMusicRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MusicSearchServiceTest {
+
+	private final AhaMusicRepository repository = mock(AhaMusicRepository.class);
+	private MusicSearchService service;
+
+	@AfterEach
+	void stopRebuilder() {
+		if (service != null) {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	void rejectsPagesWhoseOffsetWouldOverflow() {
+		service = new MusicSearchService(repository, "memory", 60);
+		when(repository.findAllSummaries()).thenReturn(List.of(song("acr1", "Echo")));
+
+		assertThrows(IllegalArgumentException.class, () -> service.search("echo", Integer.MAX_VALUE, 100));
+		assertThrows(IllegalArgumentException.class, () -> service.search("echo", 21_474_836, 100));
+		assertThrows(IllegalArgumentException.class, () -> service.search("echo", -1, 20));
+		assertThrows(IllegalArgumentException.class, () -> service.search("echo", 0, 0));
+
+		// The largest page that still fits is searched normally
+		assertTrue(service.search("echo", 21_474_835, 100).getContent().isEmpty());
+		assertEquals(1, service.search("echo", 0, 100).getContent().size());
+	}
+
+	@Test
+	@Timeout(10)
+	void staleIndexKeepsAnsweringWhileItIsRebuiltInTheBackground() throws InterruptedException {
+		// Every search finds the index stale
+		service = new MusicSearchService(repository, "memory", 0);
+		CountDownLatch rebuildStarted = new CountDownLatch(1);
+		CountDownLatch releaseRebuild = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		when(repository.findAllSummaries()).thenAnswer(invocation -> {
+			if (loads.incrementAndGet() == 1) {
+				return List.of(song("acr1", "Old Song"));
+			}
+			rebuildStarted.countDown();
+			assertTrue(releaseRebuild.await(5, TimeUnit.SECONDS));
+			return List.of(song("acr2", "New Song"));
+		});
+
+		// The first search builds the index, the second finds it stale
+		assertEquals("acr1", service.search("song", 0, 10).getContent().get(0).acrId());
+		assertEquals("acr1", service.search("song", 0, 10).getContent().get(0).acrId());
+		assertTrue(rebuildStarted.await(5, TimeUnit.SECONDS));
+
+		// The rebuild is stuck loading, yet searches return at once from the old index and start no
+		// second rebuild
+		for (int i = 0; i < 5; i++) {
+			assertEquals("acr1", service.search("song", 0, 10).getContent().get(0).acrId());
+		}
+		assertEquals(2, loads.get());
+
+		releaseRebuild.countDown();
+		while (!"acr2".equals(service.search("song", 0, 10).getContent().get(0).acrId())) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static MusicSummary song(String acrId, String title) {
+		return new MusicSummary(acrId, title, "Artist", LocalDateTime.of(2024, 1, 1, 12, 0), false);
+	}
+}
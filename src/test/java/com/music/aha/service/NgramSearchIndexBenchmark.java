@@ -0,0 +1,59 @@
+package com.music.aha.service;
+
+import com.music.aha.model.MusicSummary;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Build time of the in-process search index and per-query latency for a selective query, one whose
+ * trigram every song shares, one without matches and a two-letter one. The library is synthetic:
+ * two of twenty common words plus a random suffix per title, 5,000 artists.
+ */
+@Tag("benchmark")
+class NgramSearchIndexBenchmark {
+
+	private static final String[] WORDS = { "love", "night", "dance", "heart", "fire", "dream", "blue", "summer",
+			"rain", "light", "shadow", "gold", "river", "star", "baby", "time", "world", "home", "road", "sky" };
+	private static final int QUERIES = 50;
+
+	@Test
+	void buildAndQuery() {
+		// -Daha.benchmark.songs, 200,000 by default
+		int songs = Integer.getInteger("aha.benchmark.songs", 200_000);
+		Random random = new Random(7);
+		List<MusicSummary> library = new ArrayList<>(songs + 1);
+		for (int i = 0; i < songs; i++) {
+			String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+					+ Integer.toString(random.nextInt(1 << 20), 36);
+			String artists = "artist " + Integer.toString(random.nextInt(5000), 36);
+			library.add(new MusicSummary("acr" + i, title, artists, LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i), false));
+		}
+		library.add(new MusicSummary("queen", "Bohemian Rhapsody", "Queen", LocalDateTime.of(2024, 6, 1, 0, 0), false));
+
+		long start = System.nanoTime();
+		NgramSearchIndex index = NgramSearchIndex.build(library);
+		System.out.printf("NgramSearchIndexBenchmark: build %,d songs %.0f ms%n",
+				library.size(), (System.nanoTime() - start) / 1e6);
+		assertEquals("queen", index.search("bohemian rapsody", 0, 5).get(0).acrId());
+
+		for (String query : new String[] { "summer rain", "artist 1a", "xyzzy", "lo" }) {
+			for (int i = 0; i < 5; i++) {
+				index.search(query, 0, 20);
+			}
+			int hits = 0;
+			start = System.nanoTime();
+			for (int i = 0; i < QUERIES; i++) {
+				hits += index.search(query, 0, 20).size();
+			}
+			System.out.printf("query %-13s %.2f ms (%d hits on the first page)%n", "\"" + query + "\"",
+					(System.nanoTime() - start) / 1e6 / QUERIES, hits / QUERIES);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.music.aha.service;
+
+import com.music.aha.model.MusicSummary;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NgramSearchIndexTest {
+
+	@Test
+	void singleCharacterQueryMatchesWholeWordsOnly() {
+		NgramSearchIndex index = NgramSearchIndex.build(List.of(
+				song("acr1", "Malcolm X", "Various", 1),
+				song("acr2", "Xanadu", "Olivia Newton-John", 2),
+				song("acr3", "Max", "Jax", 3)));
+
+		assertEquals(List.of("acr1"), acrIds(index.search("x", 0, 10)));
+		assertEquals(List.of("acr1"), acrIds(index.search(" X ", 0, 10)));
+	}
+
+	@Test
+	void twoCharacterQueryMatchesWordStartsAndEnds() {
+		NgramSearchIndex index = NgramSearchIndex.build(List.of(
+				song("acr1", "Abba Gold", "ABBA", 1),
+				song("acr2", "Cab Ride", "Someone", 2),
+				song("acr3", "Kabul", "Nobody", 3),
+				song("acr4", "Ab", "Someone", 4)));
+
+		// "ab" inside a word shares neither padded trigram, so Kabul is not touched at all
+		assertEquals(List.of("acr4", "acr2", "acr1"), acrIds(index.search("AB", 0, 10)));
+	}
+
+	@Test
+	void longerQueryRanksSubstringHitsFirstThenNewest() {
+		NgramSearchIndex index = NgramSearchIndex.build(List.of(
+				song("acr1", "Lover", "Taylor Swift", 1),
+				song("acr2", "Lovers Rock", "TV Girl", 2),
+				song("acr3", "Clover", "Someone", 3),
+				song("acr4", "Love", "Someone", 4),
+				song("acr5", "Love Letters", "Someone", 5),
+				song("acr6", "Ballad", "The Lovers", 6)));
+
+		// Substring hits score 2, three of the four trigrams 0.75; "Love" shares two (0.5) and is cut off
+		assertEquals(List.of("acr6", "acr2", "acr5", "acr3", "acr1"), acrIds(index.search("lovers", 0, 10)));
+	}
+
+	@Test
+	void scoreCutOffIsInclusive() {
+		NgramSearchIndex index = NgramSearchIndex.build(List.of(
+				song("acr1", "abcde", "x", 1),
+				song("acr2", "abcd", "x", 2)));
+
+		// Query trigrams: abc bcd cde def efg. acr1 shares 3/5 = 0.6, acr2 2/5
+		assertEquals(List.of("acr1"), acrIds(index.search("abcdefg", 0, 10)));
+	}
+
+	@Test
+	void foldsCaseAndWhitespaceButNotAccents() {
+		NgramSearchIndex index = NgramSearchIndex.build(List.of(
+				song("acr1", "Café  Del Mar", "Energy 52", 1),
+				song("acr2", "Cafe Racer", "Someone", 2)));
+
+		assertEquals(List.of("acr1"), acrIds(index.search("CAFÉ del   mar", 0, 10)));
+		assertEquals(List.of("acr1"), acrIds(index.search("  energy 52 ", 0, 10)));
+		assertEquals(List.of("acr2"), acrIds(index.search("cafe", 0, 10)));
+	}
+
+	@Test
+	void tiesGoNewestFirstThenByAcrIdWithUndatedLast() {
+		NgramSearchIndex index = NgramSearchIndex.build(List.of(
+				new MusicSummary("acr1", "Echo", "A", null, false),
+				song("acr3", "Echo", "B", 1),
+				song("acr2", "Echo", "C", 1),
+				song("acr4", "Echo", "D", 2)));
+
+		assertEquals(List.of("acr4", "acr2", "acr3", "acr1"), acrIds(index.search("echo", 0, 10)));
+		assertEquals(List.of("acr2", "acr3"), acrIds(index.search("echo", 1, 2)));
+		assertEquals(List.of(), index.search("echo", 4, 10));
+	}
+
+	@Test
+	void hugeOffsetsAndLimitsDoNotOverflow() {
+		NgramSearchIndex index = NgramSearchIndex.build(List.of(
+				song("acr1", "Echo", "A", 1),
+				song("acr2", "Echo", "B", 2)));
+
+		assertEquals(List.of("acr1"), acrIds(index.search("echo", 1, Integer.MAX_VALUE)));
+		assertEquals(List.of(), index.search("echo", Integer.MAX_VALUE - 1, Integer.MAX_VALUE));
+	}
+
+	@Test
+	void blankQueryFindsNothing() {
+		NgramSearchIndex index = NgramSearchIndex.build(List.of(song("acr1", "Echo", "A", 1)));
+
+		assertEquals(List.of(), index.search("   ", 0, 10));
+		assertEquals(List.of(), index.search("zzz", 0, 10));
+	}
+
+	private static MusicSummary song(String acrId, String title, String artists, int day) {
+		return new MusicSummary(acrId, title, artists, LocalDateTime.of(2024, 1, day, 12, 0), false);
+	}
+
+	private static List<String> acrIds(List<MusicSummary> songs) {
+		return songs.stream().map(MusicSummary::acrId).toList();
+	}
+}
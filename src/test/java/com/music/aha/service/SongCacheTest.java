@@ -0,0 +1,164 @@
+package com.music.aha.service;
+
+import com.music.aha.model.AhaMusic;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SongCacheTest {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	private final AtomicLong clock = new AtomicLong();
+
+	@Test
+	void entriesExpireAfterTtl() {
+		SongCache cache = new SongCache(10, 60, clock::get);
+		UUID key = UUID.randomUUID();
+		CountingLoader loader = new CountingLoader("Title");
+
+		cache.get(key, loader);
+		clock.addAndGet(59 * SECOND);
+		assertEquals("Title", cache.get(key, loader).orElseThrow().getTitle());
+		assertEquals(1, loader.calls.get());
+
+		clock.addAndGet(SECOND);
+		cache.get(key, loader);
+		assertEquals(2, loader.calls.get());
+
+		SongCache.Stats stats = cache.getStats();
+		assertEquals(1, stats.getHits());
+		assertEquals(2, stats.getMisses());
+		assertEquals(1, stats.getEvictions());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedAtCapacity() {
+		SongCache cache = new SongCache(2, 600, clock::get);
+		UUID a = UUID.randomUUID();
+		UUID b = UUID.randomUUID();
+		UUID c = UUID.randomUUID();
+		CountingLoader loader = new CountingLoader("Title");
+
+		cache.get(a, loader);
+		cache.get(b, loader);
+		// Reading a makes b the least recently used
+		cache.get(a, loader);
+		cache.get(c, loader);
+		assertEquals(3, loader.calls.get());
+		assertEquals(2, cache.getStats().getSize());
+		assertEquals(1, cache.getStats().getEvictions());
+
+		cache.get(a, loader);
+		cache.get(c, loader);
+		assertEquals(3, loader.calls.get());
+		cache.get(b, loader);
+		assertEquals(4, loader.calls.get());
+	}
+
+	@Test
+	void cachesNotFoundAndHandsOutCopies() {
+		SongCache cache = new SongCache(10, 600, clock::get);
+		UUID missing = UUID.randomUUID();
+		AtomicInteger missingCalls = new AtomicInteger();
+		Function<UUID, Optional<AhaMusic>> notFound = key -> {
+			missingCalls.incrementAndGet();
+			return Optional.empty();
+		};
+		assertTrue(cache.get(missing, notFound).isEmpty());
+		assertTrue(cache.get(missing, notFound).isEmpty());
+		assertEquals(1, missingCalls.get());
+
+		UUID key = UUID.randomUUID();
+		CountingLoader loader = new CountingLoader("Title");
+		cache.get(key, loader).orElseThrow().setTitle("Changed by caller");
+		cache.get(key, loader).orElseThrow().setTitle("Changed again");
+		assertEquals("Title", cache.get(key, loader).orElseThrow().getTitle());
+	}
+
+	@Test
+	void loadRacingWithInvalidateAllIsNotCached() throws Exception {
+		SongCache cache = new SongCache(10, 600, clock::get);
+		UUID key = UUID.randomUUID();
+		AhaMusic stale = music(key, "Stale");
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch invalidated = new CountDownLatch(1);
+
+		// Reads the old row, then stalls while a writer commits and invalidates
+		AtomicReference<Optional<AhaMusic>> raced = new AtomicReference<>();
+		Thread reader = new Thread(() -> raced.set(cache.get(key, k -> {
+			loading.countDown();
+			try {
+				assertTrue(invalidated.await(5, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return Optional.of(stale);
+		})));
+		reader.start();
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		cache.invalidateAll(List.of(music(key, "Fresh")));
+		invalidated.countDown();
+		reader.join(5_000);
+
+		// The racing caller still gets what it read, but it is not kept
+		assertEquals("Stale", raced.get().orElseThrow().getTitle());
+		assertEquals(0, cache.getStats().getSize());
+		CountingLoader fresh = new CountingLoader("Fresh");
+		assertEquals("Fresh", cache.get(key, fresh).orElseThrow().getTitle());
+		assertEquals(1, fresh.calls.get());
+
+		// Loads that start after the invalidation are cached again
+		assertEquals("Fresh", cache.get(key, fresh).orElseThrow().getTitle());
+		assertEquals(1, fresh.calls.get());
+	}
+
+	@Test
+	void invalidateDropsTheEntry() {
+		SongCache cache = new SongCache(10, 600, clock::get);
+		UUID key = UUID.randomUUID();
+		CountingLoader loader = new CountingLoader("Title");
+
+		cache.get(key, loader);
+		cache.invalidate(key);
+		cache.get(key, loader);
+		assertEquals(2, loader.calls.get());
+
+		cache.clear();
+		assertEquals(0, cache.getStats().getSize());
+	}
+
+	private static AhaMusic music(UUID key, String title) {
+		AhaMusic music = new AhaMusic();
+		music.setAcrId("acr-" + key);
+		music.setSongKey(key);
+		music.setTitle(title);
+		music.setArtists("Artist");
+		return music;
+	}
+
+	private static class CountingLoader implements Function<UUID, Optional<AhaMusic>> {
+		private final String title;
+		private final AtomicInteger calls = new AtomicInteger();
+
+		CountingLoader(String title) {
+			this.title = title;
+		}
+
+		@Override
+		public Optional<AhaMusic> apply(UUID key) {
+			calls.incrementAndGet();
+			return Optional.of(music(key, title));
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package com.music.aha.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+	private static final long MILLI = 1_000_000L;
+
+	private final AtomicLong clock = new AtomicLong(123 * MILLI);
+
+	@Test
+	void burstIsFreeThenCallsAreSpacedAtTheRate() {
+		TokenBucket bucket = new TokenBucket(2, 3, clock::get);
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, bucket.reserve());
+		}
+		// Callers arriving together queue up one slot (500 ms) apart
+		assertEquals(500, millis(bucket.reserve()), 0.001);
+		assertEquals(1000, millis(bucket.reserve()), 0.001);
+	}
+
+	@Test
+	void refillsWithElapsedTime() {
+		TokenBucket bucket = new TokenBucket(2, 3, clock::get);
+		for (int i = 0; i < 3; i++) {
+			bucket.reserve();
+		}
+
+		clock.addAndGet(1000 * MILLI);
+		assertEquals(0, bucket.reserve());
+		assertEquals(0, bucket.reserve());
+		assertEquals(500, millis(bucket.reserve()), 0.001);
+
+		// A reservation is repaid by the refill before the next caller gets a token
+		clock.addAndGet(250 * MILLI);
+		assertEquals(750, millis(bucket.reserve()), 0.001);
+	}
+
+	@Test
+	void idleTimeRefillsNoMoreThanTheBurst() {
+		TokenBucket bucket = new TokenBucket(5, 2, clock::get);
+		bucket.reserve();
+		bucket.reserve();
+
+		clock.addAndGet(3_600_000 * MILLI);
+		assertEquals(0, bucket.reserve());
+		assertEquals(0, bucket.reserve());
+		assertEquals(200, millis(bucket.reserve()), 0.001);
+	}
+
+	@Test
+	void acquireSleepsForItsReservation() throws InterruptedException {
+		TokenBucket bucket = new TokenBucket(20, 1);
+		long started = System.nanoTime();
+		for (int i = 0; i < 3; i++) {
+			bucket.acquire();
+		}
+		// The first token is free, the next two come 50 ms apart
+		assertTrue(System.nanoTime() - started >= 95 * MILLI);
+	}
+
+	@Test
+	void rejectsNonPositiveSettings() {
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 5));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(-1, 5));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(Double.NaN, 5));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(5, 0));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(5, -3));
+	}
+
+	private static double millis(long nanos) {
+		return nanos / (double) MILLI;
+	}
+}
@@ -0,0 +1,73 @@
+package com.music.aha.service;
+
+import com.google.api.client.auth.oauth2.BearerToken;
+import com.google.api.client.auth.oauth2.Credential;
+import com.music.aha.service.YouTubeService.SongInfo;
+import com.music.aha.service.YouTubeService.VideoSearch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class YouTubeServiceTest {
+
+	private static final Credential CREDENTIAL = new Credential(BearerToken.authorizationHeaderAccessMethod());
+	// How long the search for a title takes, by its first word
+	private static final Map<String, Long> SEARCH_MILLIS = Map.of("slow", 700L, "fast", 50L, "hung", 60_000L);
+
+	// One worker and a one second timeout
+	private final YouTubeService service = new YouTubeService(mock(Environment.class), 1, 100, 10, 1) {
+		@Override
+		public String searchVideo(String title, String artists, Credential credential) {
+			try {
+				Thread.sleep(SEARCH_MILLIS.get(title.split(" ")[0]));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+			return "video-" + title;
+		}
+	};
+
+	@AfterEach
+	void shutdown() {
+		service.shutdown();
+	}
+
+	@Test
+	@Timeout(10)
+	void timeQueuedBehindOtherSearchesDoesNotCount() throws Exception {
+		// Another playlist holds the only worker for about 1.4 s, longer than the timeout
+		CompletableFuture<VideoSearch> other = CompletableFuture.supplyAsync(() ->
+				service.searchVideos(List.of(song("slow"), song("slow 2")), CREDENTIAL));
+		Thread.sleep(100);
+
+		VideoSearch search = service.searchVideos(List.of(song("fast")), CREDENTIAL);
+
+		assertEquals(List.of("video-fast"), search.getVideoIds());
+		assertEquals(List.of(), search.getTimedOut());
+		assertEquals(List.of("video-slow", "video-slow 2"), other.get().getVideoIds());
+	}
+
+	@Test
+	@Timeout(10)
+	void searchRunningPastTheTimeoutIsReportedOnce() {
+		SongInfo hung = song("hung");
+
+		VideoSearch search = service.searchVideos(List.of(song("fast"), hung, song("hung"), song("fast 2")), CREDENTIAL);
+
+		assertEquals(List.of("video-fast", "video-fast 2"), search.getVideoIds());
+		assertEquals(List.of(hung), search.getTimedOut());
+	}
+
+	private static SongInfo song(String title) {
+		return new SongInfo(title, "Artist");
+	}
+}